@@ -0,0 +1,63 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures how many bytes the simulator allocates per animal per step once a
+ * fixed-seed world has settled, and fails when that exceeds a limit. The cost
+ * is taken per animal so that it does not follow the populations the seed
+ * happens to give. Run it after changes to the stepping code to catch
+ * allocation regressions:
+ * <pre>
+ *     java AllocationCheck [limit in bytes per animal step]
+ * </pre>
+ * The process exits with status 1 if the limit is exceeded.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public class AllocationCheck {
+    // The default limit on the bytes allocated per animal per step.
+    private static final long DEFAULT_LIMIT = 1_200;
+    // Steps simulated before measuring, to let the JIT and the population settle.
+    private static final int WARM_UP_STEPS = 24;
+    // Steps measured; two whole days, so night and day are weighted as in a long run.
+    private static final int MEASURED_STEPS = 48;
+
+    /**
+     * Run the check.
+     *
+     * @param args An optional limit in bytes per animal step.
+     */
+    public static void main(String[] args) {
+        long limit = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_LIMIT;
+        long perAnimalStep = measure();
+        System.out.println("Allocated per animal step: " + perAnimalStep + " bytes (limit " + limit + ")");
+        if (perAnimalStep > limit) {
+            System.out.println("FAILED: allocation per animal step exceeds the limit");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Simulate the fixed-seed world and return the average number of bytes
+     * allocated per animal in each measured step.
+     *
+     * @return The bytes allocated per animal step.
+     */
+    public static long measure() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Randomizer.reset();
+        Simulator simulator = new Simulator(85, 130, false);
+        for (int n = 0; n < WARM_UP_STEPS; n++) {
+            simulator.simulateOneStep();
+        }
+        long animalSteps = 0;
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int n = 0; n < MEASURED_STEPS; n++) {
+            animalSteps += simulator.getField().getAnimals().size();
+            simulator.simulateOneStep();
+        }
+        long after = threads.getCurrentThreadAllocatedBytes();
+        return (after - before) / Math.max(1, animalSteps);
+    }
+}
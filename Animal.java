@@ -6,12 +6,22 @@ import java.util.Random;
  * @author David J. Barnes, Michael Kölling and Krish Shah
  * @version 7.0
  */
-public abstract class Animal {
+public abstract class Animal implements Cloneable {
     private static final Random rand = Randomizer.getRandom();
     // The animal's life expectancy
     protected int lifeExpectancy;
-    // The animal's current age
+    // The animal's age when it is created; once in the field its age is derived from its birth step
     protected int age;
+    // The step at which the animal was born
+    private int birthStep;
+    // The step at which the animal dies of old age or disease
+    private int deathStep;
+    // The lifecycle tracking the animal, once it has been placed in the field
+    private Lifecycle lifecycle;
+    // How many times this object has been reborn as a new animal
+    private int generation;
+    // The animal's slot in the disease index, or -1 if it is not infected
+    int diseaseSlot = -1;
     // The animal's gender, true if male, false if female
     protected boolean isMale;
     // Whether the animal is alive or not.
@@ -46,13 +56,122 @@ public abstract class Animal {
     }
 
     /**
-     * Increases the age.
-     * This could result in the animal's death.
+     * Return the animal's current age.
+     *
+     * @return The number of steps since the animal was born.
+     */
+    public int getAge() {
+        if (lifecycle == null) {
+            return age;
+        }
+        return lifecycle.getStep() - birthStep;
+    }
+
+    /**
+     * Start being tracked by a lifecycle. The animal dies of old age
+     * once its age exceeds its life expectancy.
+     *
+     * @param lifecycle The lifecycle of the simulation.
+     * @param birthStep The step at which the animal was born.
+     */
+    void enterLifecycle(Lifecycle lifecycle, int birthStep) {
+        this.lifecycle = lifecycle;
+        this.birthStep = birthStep;
+        deathStep = birthStep + lifeExpectancy + 1;
+    }
+
+    /**
+     * Check whether the animal's lifecycle is being tracked.
+     *
+     * @return true if the animal has been placed in a field.
+     */
+    public boolean hasLifecycle() {
+        return lifecycle != null;
+    }
+
+    /**
+     * Return the generation of this object, which changes each time it is
+     * reused for a newborn.
+     *
+     * @return The animal's generation.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Give a dead animal the state of a newborn at the given location,
+     * so that the object can be reused.
+     *
+     * @param location The newborn's location.
+     */
+    protected void reset(Location location) {
+        assert !alive;
+        generation++;
+        alive = true;
+        this.location = location;
+        age = 0;
+        lifecycle = null;
+        isMale = rand.nextBoolean();
+    }
+
+    /**
+     * Return a copy of the animal, of the same age, sex and state, for a
+     * branch of the simulation. The copy is not yet placed in a field.
+     *
+     * @return The copy.
+     */
+    Animal copy() {
+        try {
+            Animal copy = (Animal) clone();
+            copy.age = getAge();
+            copy.lifecycle = null;
+            copy.generation = 0;
+            copy.diseaseSlot = -1;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Return the step at which the animal dies of old age or disease.
+     *
+     * @return The animal's death step.
+     */
+    public int getDeathStep() {
+        return deathStep;
+    }
+
+    /**
+     * Set the step at which the animal dies of old age or disease.
+     *
+     * @param deathStep The animal's new death step.
      */
-    protected void incrementAge() {
-        age++;
-        if (age > lifeExpectancy) {
-            setDead();
+    void setDeathStep(int deathStep) {
+        this.deathStep = deathStep;
+    }
+
+    /**
+     * Change the animal's life expectancy, moving its scheduled death.
+     *
+     * @param lifeExpectancy The age the animal can now live to.
+     */
+    protected void setLifeExpectancy(int lifeExpectancy) {
+        this.lifeExpectancy = lifeExpectancy;
+        if (lifecycle != null) {
+            lifecycle.reschedule(this, birthStep + lifeExpectancy + 1);
+        }
+    }
+
+    /**
+     * Record that the animal has just caught a disease from another animal,
+     * once its life expectancy has been shortened. An animal not yet in the
+     * field is recorded as infected when it is placed.
+     */
+    protected void recordInfection() {
+        if (lifecycle != null) {
+            lifecycle.recordInfection(this);
         }
     }
 
@@ -66,6 +185,15 @@ public abstract class Animal {
      */
     abstract public void act(Field currentField, Field nextFieldState, int time, boolean isSunny);
 
+    /**
+     * Check the animal's sex.
+     *
+     * @return true if the animal is male.
+     */
+    public boolean isMale() {
+        return isMale;
+    }
+
     /**
      * Check whether the animal is alive or not.
      *
@@ -77,10 +205,24 @@ public abstract class Animal {
 
     /**
      * Indicates that the animal is no longer alive.
+     * The animal keeps the location where it died.
+     *
+     * @param cause Why the animal died.
      */
-    protected void setDead() {
+    protected void setDead(DeathCause cause) {
+        if (alive && lifecycle != null) {
+            lifecycle.recordDeath(this, cause);
+        }
         alive = false;
-        location = null;
+    }
+
+    /**
+     * Check whether the animal carries a disease that will end its life early.
+     *
+     * @return true if the animal is diseased. By default animals are not.
+     */
+    public boolean isDiseased() {
+        return false;
     }
 
     /**
@@ -98,6 +240,9 @@ public abstract class Animal {
      * @param location The new location.
      */
     protected void setLocation(Location location) {
+        if (lifecycle != null) {
+            lifecycle.recordMove(this, this.location, location);
+        }
         this.location = location;
     }
 }
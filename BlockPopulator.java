@@ -0,0 +1,166 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fills a field at random in parallel, for a quick start on very large fields.
+ * <p>
+ * The field is cut into blocks of rows, and each block is generated on a
+ * worker from a random stream seeded from the block's number, so the field
+ * that results depends on the seed but not on how many threads there are. The
+ * chances of each species are those of the sequential populate, which tries
+ * each in turn at every position; rather than rolling for every position, the
+ * generator draws the length of each run of empty positions from the geometric
+ * distribution and then which species occupies the position after it. The
+ * occupants are placed in the field on the calling thread, block by block in
+ * order, while later blocks are still being generated.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public class BlockPopulator {
+    // The number of rows in a block.
+    static final int BLOCK_ROWS = 64;
+
+    // The species that may occupy a position, in the order they are tried.
+    private final Species[] kinds;
+    // The chance that a position is occupied by each species or one before it.
+    private final double[] cumulative;
+    // The chance that a position is occupied at all.
+    private final double occupied;
+    // Skips the runs of empty positions.
+    private final GeometricSampler occupiedPositions;
+
+    /**
+     * The plants and animals generated for one block of rows.
+     */
+    private static class Block {
+        // The position and height of each plant, in pairs.
+        private int[] plants = new int[64];
+        private int plantValues;
+        // The animals, row by row.
+        private final List<Animal> animals = new ArrayList<>();
+
+        private void addPlant(int index, int height) {
+            if (plantValues + 2 > plants.length) {
+                plants = Arrays.copyOf(plants, plants.length * 2);
+            }
+            plants[plantValues++] = index;
+            plants[plantValues++] = height;
+        }
+    }
+
+    /**
+     * Create a populator for the given species and chances.
+     *
+     * @param kinds   The species, in the order they are tried at each position.
+     * @param chances The chance of each species at a position where those
+     *                before it were not chosen.
+     */
+    public BlockPopulator(Species[] kinds, double[] chances) {
+        this.kinds = kinds.clone();
+        cumulative = new double[kinds.length];
+        double empty = 1;
+        double total = 0;
+        for (int k = 0; k < kinds.length; k++) {
+            total += empty * chances[k];
+            empty *= 1 - chances[k];
+            cumulative[k] = total;
+        }
+        occupied = total;
+        occupiedPositions = new GeometricSampler(Math.min(occupied, 1));
+    }
+
+    /**
+     * Fill an empty field.
+     *
+     * @param field   The field, which must be empty.
+     * @param seed    The seed the streams of the blocks are made from.
+     * @param threads The number of threads generating blocks.
+     */
+    public void populate(Field field, long seed, int threads) {
+        int depth = field.getDepth();
+        int width = field.getWidth();
+        int blocks = (depth + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        AtomicInteger workerNumber = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "populate-" + workerNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Block>> generated = new ArrayList<>(blocks);
+            for (int b = 0; b < blocks; b++) {
+                int block = b;
+                generated.add(workers.submit(() -> generate(block, depth, width, seed)));
+            }
+            Plant plants = field.getPlants();
+            for (int b = 0; b < blocks; b++) {
+                Block block = generated.get(b).get();
+                generated.set(b, null);
+                for (int i = 0; i < block.plantValues; i += 2) {
+                    int index = block.plants[i];
+                    plants.plant(new Location(index / width, index % width), block.plants[i + 1]);
+                }
+                for (Animal anAnimal : block.animals) {
+                    field.placeAnimal(anAnimal, anAnimal.getLocation());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while populating the field", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("could not populate the field", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Generate the occupants of a block of rows from the block's own stream.
+     * The stream is the worker thread's shared generator, reseeded, so that
+     * the animals draw their ages and sexes from it too.
+     */
+    private Block generate(int block, int depth, int width, long seed) {
+        Randomizer.setSeed(Zobrist.mix(seed + block * Zobrist.GOLDEN_GAMMA));
+        Random rand = Randomizer.getRandom();
+        Block result = new Block();
+        int first = block * BLOCK_ROWS * width;
+        long positions = (long) Math.min(BLOCK_ROWS, depth - block * BLOCK_ROWS) * width;
+        if (occupied <= 0) {
+            return result;
+        }
+        long position = -1;
+        while (true) {
+            // the number of empty positions before the next occupied one
+            long gap = occupiedPositions.nextGap(rand);
+            if (gap >= positions - 1 - position) {
+                return result;
+            }
+            position += 1 + gap;
+            double draw = rand.nextDouble() * occupied;
+            int k = 0;
+            while (k < kinds.length - 1 && draw >= cumulative[k]) {
+                k++;
+            }
+            int index = first + (int) position;
+            Location location = new Location(index / width, index % width);
+            switch (kinds[k]) {
+                case PLANT -> result.addPlant(index, rand.nextInt(Plant.MAX_HEIGHT));
+                case TURTLE -> result.animals.add(new Turtle(true, location));
+                case IGUANA -> result.animals.add(new Iguana(true, location));
+                case MANATEE -> result.animals.add(new Manatee(true, location));
+                case SHARK -> result.animals.add(new Shark(true, location));
+                case ORCA -> result.animals.add(new Orca(true, location));
+                case EMPTY -> {
+                }
+            }
+        }
+    }
+}
@@ -29,23 +29,76 @@ public abstract class Consumer extends Animal {
         lifeExpectancy = MAX_AGE;
     }
 
+    /**
+     * Give a dead consumer the state of a newborn, so that the object can be reused.
+     *
+     * @param location  The newborn's location.
+     * @param foodLevel The newborn's food level.
+     */
+    protected void reset(Location location, int foodLevel) {
+        reset(location);
+        this.foodLevel = foodLevel;
+        lifeExpectancy = MAX_AGE;
+    }
+
     /**
      * Increases the hunger level, potentially causing death.
      */
     protected void incrementHunger() {
         foodLevel--;
         if (foodLevel <= 0) {
-            setDead();
+            setDead(DeathCause.STARVATION);
         }
     }
 
+    /**
+     * Determines whether the consumer rests through this step, staying where it is
+     * without moving, feeding or breeding. By default consumers rest at night.
+     *
+     * @param currentTime The current time of the environment.
+     * @param isSunny     The weather condition.
+     * @return true if the consumer is dormant.
+     */
+    protected boolean isDormant(int currentTime, boolean isSunny) {
+        return !validTime(currentTime);
+    }
+
+    /**
+     * Spends a dormant step: the consumer only gets hungrier,
+     * which could result in its death.
+     */
+    protected void rest() {
+        incrementHunger();
+    }
+
     /**
      * Determines whether the consumer can breed based on its age.
      *
      * @return true if the consumer can breed
      */
     protected boolean canBreed() {
-        return age >= BREEDING_AGE;
+        return getAge() >= BREEDING_AGE;
+    }
+
+    /**
+     * Determines whether the consumer may give birth at this time of day when
+     * it is active. By default consumers breed whenever they are active.
+     *
+     * @param currentTime The current time of the environment.
+     * @return true if the consumer may give birth.
+     */
+    protected boolean breedsAt(int currentTime) {
+        return true;
+    }
+
+    /**
+     * Lets mating have an effect on the two partners, beyond the young.
+     * By default it has none.
+     *
+     * @param mate The male this consumer mated with.
+     * @param draw A random number between 0 and 1 for the mating.
+     */
+    protected void mateWith(Consumer mate, double draw) {
     }
 
     /**
@@ -54,6 +107,25 @@ public abstract class Consumer extends Animal {
      */
     protected abstract Location findFood(Field field);
 
+    /**
+     * Turns a dead consumer into a newborn of its species, as the constructor
+     * would create one, so that the object can be reused.
+     * Implemented by subclasses.
+     *
+     * @param location The newborn's location.
+     */
+    protected abstract void reborn(Location location);
+
+    /**
+     * Creates a newborn of the consumer's species, reusing a dead one of the
+     * species if the lifecycle has one free. Implemented by subclasses.
+     *
+     * @param nextFieldState The updated field.
+     * @param location       The newborn's location.
+     * @return The newborn, not yet placed in the field.
+     */
+    protected abstract Consumer newborn(Field nextFieldState, Location location);
+
     /**
      * Defines birth-giving behavior, implemented by subclasses.
      */
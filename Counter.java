@@ -44,6 +44,15 @@ public class Counter {
         count++;
     }
 
+    /**
+     * Increase the current count by the given amount.
+     *
+     * @param amount How much to add.
+     */
+    public void add(int amount) {
+        count += amount;
+    }
+
     /**
      * Reset the current count to zero.
      */
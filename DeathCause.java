@@ -0,0 +1,18 @@
+/**
+ * The ways in which an animal can die.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public enum DeathCause {
+    // Lived past its life expectancy.
+    AGE,
+    // Ran out of the steps left after catching a disease.
+    DISEASE,
+    // Ran out of food.
+    STARVATION,
+    // Was caught by a predator.
+    EATEN,
+    // Had nowhere to move to, or was pushed out of its location.
+    OVERCROWDING
+}
@@ -0,0 +1,123 @@
+import java.util.Arrays;
+
+/**
+ * Counts of the occupants of a field over square blocks of positions at
+ * several resolutions, like the mipmaps of a texture. The finest level counts
+ * blocks of BASE_BLOCK by BASE_BLOCK positions and each coarser level blocks
+ * LEVEL_FACTOR times as wide, until one block covers the whole field. A change
+ * to a position updates one block per level, so the counts stay current as
+ * the field changes, and a zoomed-out view can be drawn from a coarse level
+ * in time proportional to its blocks rather than to the positions.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public class DensityPyramid {
+    // The width of the blocks of the finest level, in positions.
+    public static final int BASE_BLOCK = 4;
+    // How many times wider the blocks of each level are than those of the one below.
+    public static final int LEVEL_FACTOR = 4;
+
+    // The number of kinds of occupant counted.
+    private final int kinds;
+    // The width of the blocks of each level.
+    private final int[] blockSizes;
+    // The number of blocks across each level.
+    private final int[] columns;
+    // The counts of each level, by block row by row, then by kind.
+    private final int[][] counts;
+
+    /**
+     * Create a pyramid with every count zero.
+     *
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param kinds The number of kinds of occupant to count.
+     */
+    public DensityPyramid(int depth, int width, int kinds) {
+        this.kinds = kinds;
+        int levels = 1;
+        for (int size = BASE_BLOCK; size < Math.max(depth, width); size *= LEVEL_FACTOR) {
+            levels++;
+        }
+        blockSizes = new int[levels];
+        columns = new int[levels];
+        counts = new int[levels][];
+        int size = BASE_BLOCK;
+        for (int level = 0; level < levels; level++) {
+            blockSizes[level] = size;
+            columns[level] = (width + size - 1) / size;
+            int rows = (depth + size - 1) / size;
+            counts[level] = new int[rows * columns[level] * kinds];
+            size *= LEVEL_FACTOR;
+        }
+    }
+
+    /**
+     * Add to the count of a kind of occupant at a position.
+     *
+     * @param row   The row of the position.
+     * @param col   The column of the position.
+     * @param kind  The kind of occupant.
+     * @param delta The amount to add, negative to take away.
+     */
+    public void add(int row, int col, int kind, int delta) {
+        for (int level = 0; level < counts.length; level++) {
+            int size = blockSizes[level];
+            counts[level][((row / size) * columns[level] + col / size) * kinds + kind] += delta;
+        }
+    }
+
+    /**
+     * @return The number of levels, the finest first.
+     */
+    public int getLevels() {
+        return counts.length;
+    }
+
+    /**
+     * Return the width of the blocks of a level.
+     *
+     * @param level The level.
+     * @return The number of positions across a block.
+     */
+    public int getBlockSize(int level) {
+        return blockSizes[level];
+    }
+
+    /**
+     * Return the finest level whose blocks are at least the given width.
+     *
+     * @param positions The width a block should cover, in positions.
+     * @return The level, or the coarsest level if none is that coarse.
+     */
+    public int levelFor(int positions) {
+        int level = 0;
+        while (level < counts.length - 1 && blockSizes[level] < positions) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Return the count of a kind of occupant in a block.
+     *
+     * @param level    The level.
+     * @param blockRow The row of the block within the level.
+     * @param blockCol The column of the block within the level.
+     * @param kind     The kind of occupant.
+     * @return The number of that kind in the block.
+     */
+    public int getCount(int level, int blockRow, int blockCol, int kind) {
+        return counts[level][(blockRow * columns[level] + blockCol) * kinds + kind];
+    }
+
+    /**
+     * Set every count back to zero.
+     */
+    public void clear() {
+        for (int[] level : counts) {
+            Arrays.fill(level, 0);
+        }
+    }
+}
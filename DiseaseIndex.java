@@ -0,0 +1,245 @@
+import java.util.Arrays;
+
+/**
+ * An index of the animals carrying a disease, kept up to date as animals catch
+ * it and die, so that the course of an epidemic can be read at every step
+ * without scanning the population.
+ * <p>
+ * The infected are held in a dense array, each animal remembering its slot, so
+ * infecting and removing an animal take constant time. Each infection is also
+ * queued with the step at which the disease ends the animal's life. Every
+ * infection runs for the same number of steps, so the queue is in order of
+ * expiry as well as of infection and the deaths due soon are found at its head.
+ * <p>
+ * The model has no recovery: an infected animal either dies of the disease or
+ * is removed from the population some other way, such as by being eaten.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public class DiseaseIndex {
+    // The initial capacity of the set and of the queue.
+    private static final int INITIAL_CAPACITY = 64;
+
+    // The infected animals, the first size entries in use.
+    private Animal[] infected = new Animal[INITIAL_CAPACITY];
+    // The step at which each infected animal caught the disease.
+    private int[] infectedAt = new int[INITIAL_CAPACITY];
+    // The number of infected animals.
+    private int size;
+
+    // The queued infections, a ring buffer from head holding queued entries.
+    private Animal[] queued = new Animal[INITIAL_CAPACITY];
+    // The generation each queued animal was infected in.
+    private int[] queuedGenerations = new int[INITIAL_CAPACITY];
+    // The step at which each queued infection ends the animal's life.
+    private int[] expiries = new int[INITIAL_CAPACITY];
+    private int head;
+    private int queuedCount;
+
+    // The number of infections at the current step, and how many of them were passed on by contact.
+    private int newInfections;
+    private int transmissions;
+    // The number of infected animals that died of the disease at the current step.
+    private int diseaseDeaths;
+    // The number of infected animals that died of anything else at the current step.
+    private int removals;
+
+    /**
+     * Add an animal that has just caught the disease, or that was placed in
+     * the field already carrying it.
+     *
+     * @param anAnimal     The infected animal.
+     * @param step         The current step.
+     * @param transmitted  true if it caught the disease from another animal.
+     * @param counted      false for the initial population, which is not counted as new infections.
+     */
+    public void infect(Animal anAnimal, int step, boolean transmitted, boolean counted) {
+        if (anAnimal.diseaseSlot >= 0) {
+            return;
+        }
+        if (size == infected.length) {
+            infected = Arrays.copyOf(infected, size * 2);
+            infectedAt = Arrays.copyOf(infectedAt, size * 2);
+        }
+        anAnimal.diseaseSlot = size;
+        infected[size] = anAnimal;
+        infectedAt[size] = step;
+        size++;
+        enqueue(anAnimal);
+        if (counted) {
+            newInfections++;
+            if (transmitted) {
+                transmissions++;
+            }
+        }
+    }
+
+    /**
+     * Remove an infected animal that has died. Animals that are not infected are ignored.
+     *
+     * @param anAnimal The animal that died.
+     * @param cause    Why it died.
+     */
+    public void remove(Animal anAnimal, DeathCause cause) {
+        int slot = anAnimal.diseaseSlot;
+        if (slot < 0) {
+            return;
+        }
+        size--;
+        Animal last = infected[size];
+        infected[slot] = last;
+        infectedAt[slot] = infectedAt[size];
+        last.diseaseSlot = slot;
+        infected[size] = null;
+        anAnimal.diseaseSlot = -1;
+        if (cause == DeathCause.DISEASE) {
+            diseaseDeaths++;
+        } else {
+            removals++;
+        }
+    }
+
+    /**
+     * Move on to a new step: clear the counts of the previous one and drop
+     * the queued infections that have run their course.
+     *
+     * @param step The new current step.
+     */
+    public void advance(int step) {
+        newInfections = 0;
+        transmissions = 0;
+        diseaseDeaths = 0;
+        removals = 0;
+        while (queuedCount > 0 && expiries[head] < step) {
+            queued[head] = null;
+            head = (head + 1) & (queued.length - 1);
+            queuedCount--;
+        }
+    }
+
+    /**
+     * @return The number of animals carrying the disease.
+     */
+    public int getInfectedCount() {
+        return size;
+    }
+
+    /**
+     * Return one of the infected animals.
+     *
+     * @param i The index of the animal, from 0 to getInfectedCount() - 1.
+     * @return The animal.
+     */
+    public Animal getInfected(int i) {
+        return infected[i];
+    }
+
+    /**
+     * Return the step at which an animal caught the disease.
+     *
+     * @param anAnimal The animal.
+     * @return The step of its infection, or -1 if it is not infected.
+     */
+    public int getInfectionStep(Animal anAnimal) {
+        return anAnimal.diseaseSlot < 0 ? -1 : infectedAt[anAnimal.diseaseSlot];
+    }
+
+    /**
+     * Return the number of infected animals still alive whose disease ends
+     * their life at the given step.
+     *
+     * @param step A step after the current one.
+     * @return The number of deaths from the disease due at that step.
+     */
+    public int getExpiring(int step) {
+        int count = 0;
+        for (int i = 0; i < queuedCount; i++) {
+            int entry = (head + i) & (queued.length - 1);
+            if (expiries[entry] > step) {
+                break;
+            }
+            Animal anAnimal = queued[entry];
+            if (expiries[entry] == step && anAnimal.getGeneration() == queuedGenerations[entry]
+                    && anAnimal.diseaseSlot >= 0 && anAnimal.getDeathStep() == step) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of animals that caught the disease at the current step.
+     */
+    public int getNewInfections() {
+        return newInfections;
+    }
+
+    /**
+     * @return The number of the current step's infections caught from another animal.
+     */
+    public int getTransmissions() {
+        return transmissions;
+    }
+
+    /**
+     * @return The number of infected animals that died of the disease at the current step.
+     */
+    public int getDiseaseDeaths() {
+        return diseaseDeaths;
+    }
+
+    /**
+     * @return The number of infected animals that died of another cause at the current step.
+     */
+    public int getRemovals() {
+        return removals;
+    }
+
+    /**
+     * Forget every infection.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            infected[i].diseaseSlot = -1;
+        }
+        Arrays.fill(infected, 0, size, null);
+        size = 0;
+        Arrays.fill(queued, null);
+        head = 0;
+        queuedCount = 0;
+        newInfections = 0;
+        transmissions = 0;
+        diseaseDeaths = 0;
+        removals = 0;
+    }
+
+    /**
+     * Queue an infection at the step it ends the animal's life.
+     */
+    private void enqueue(Animal anAnimal) {
+        if (queuedCount == queued.length) {
+            int capacity = queued.length * 2;
+            Animal[] animals = new Animal[capacity];
+            int[] generations = new int[capacity];
+            int[] steps = new int[capacity];
+            for (int i = 0; i < queuedCount; i++) {
+                int entry = (head + i) & (queued.length - 1);
+                animals[i] = queued[entry];
+                generations[i] = queuedGenerations[entry];
+                steps[i] = expiries[entry];
+            }
+            queued = animals;
+            queuedGenerations = generations;
+            expiries = steps;
+            head = 0;
+        }
+        int tail = (head + queuedCount) & (queued.length - 1);
+        assert queuedCount == 0 || expiries[(tail - 1) & (queued.length - 1)] <= anAnimal.getDeathStep()
+                : "infections must expire in the order they are caught";
+        queued[tail] = anAnimal;
+        queuedGenerations[tail] = anAnimal.getGeneration();
+        expiries[tail] = anAnimal.getDeathStep();
+        queuedCount++;
+    }
+}
@@ -0,0 +1,154 @@
+import java.util.function.Supplier;
+
+/**
+ * Checks that two ways of running the simulation produce the same states by
+ * comparing the state hash of every step. Both runs start from the fixed seed;
+ * because they draw from the same shared random generator they are run one
+ * after the other rather than interleaved, and their hashes compared step by step.
+ * The runs that count regions and keep density pyramids also check after
+ * every step that the counts, which are only changed by births, deaths and
+ * moves, agree with a scan of the field.
+ * <pre>
+ *     java EquivalenceCheck [steps]
+ * </pre>
+ *
+ * @author Krish Shah
+ * @version 2.1
+ */
+public class EquivalenceCheck {
+    // The default number of steps compared.
+    private static final int DEFAULT_STEPS = 500;
+
+    /**
+     * Check that configurations which should not change the course of a run
+     * give the same states: counting regions and keeping density pyramids or
+     * not, reusing dead animals or not, and the two-phase update on one
+     * thread or many. The sequential update is checked with and without each
+     * option, and so is the two-phase update.
+     *
+     * @param args Optionally, the number of steps to compare.
+     */
+    public static void main(String[] args) {
+        int steps = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_STEPS;
+        for (int threads : new int[]{0, 1}) {
+            String mode = threads == 0 ? "sequential" : "two-phase";
+            System.out.print(mode + ", region counts and density pyramids on and off: ");
+            report(firstMismatch(() -> engine(threads, false, true), () -> engine(threads, true, true), steps), steps);
+            System.out.print(mode + ", animal reuse on and off: ");
+            report(firstMismatch(() -> engine(threads, false, true), () -> engine(threads, false, false), steps),
+                    steps);
+        }
+        System.out.print("two-phase, 1 and 8 threads: ");
+        report(firstMismatch(() -> engine(1, false, true), () -> engine(8, false, true), steps), steps);
+    }
+
+    /**
+     * Return a headless simulator.
+     *
+     * @param threads The number of threads of the two-phase update, or 0 for the sequential update.
+     * @param indexed Whether the field counts regions and keeps density pyramids.
+     * @param reuse   Whether dead animals are reused.
+     */
+    private static Simulator engine(int threads, boolean indexed, boolean reuse) {
+        Simulator simulator = new Simulator(85, 130, false);
+        if (threads > 0) {
+            simulator.setUpdateMode(UpdateMode.INTENT_COMMIT, threads);
+        }
+        if (indexed) {
+            simulator.getField().enableRegionCounts();
+            simulator.getField().enableDensityPyramid();
+        }
+        simulator.setAnimalReuse(reuse);
+        return simulator;
+    }
+
+    /**
+     * Run both engines from the fixed seed and find the first step at
+     * which their states differ.
+     *
+     * @param reference Creates the simulator whose states are taken as correct.
+     * @param candidate Creates the simulator being checked.
+     * @param steps     The number of steps to compare.
+     * @return The first step whose states differ, or -1 if all match.
+     */
+    public static int firstMismatch(Supplier<Simulator> reference, Supplier<Simulator> candidate, int steps) {
+        long[] expected = hashes(reference, steps);
+        long[] actual = hashes(candidate, steps);
+        for (int step = 0; step <= steps; step++) {
+            if (expected[step] != actual[step]) {
+                return step;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Print the outcome of a comparison, and exit with status 1 if it failed.
+     *
+     * @param mismatch The first step whose states differ, or -1.
+     * @param steps    The number of steps compared.
+     */
+    public static void report(int mismatch, int steps) {
+        if (mismatch < 0) {
+            System.out.println("All " + steps + " steps match");
+        } else {
+            System.out.println("FAILED: states differ from step " + mismatch);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Return the state hash after reset and after every step of a seeded run.
+     */
+    private static long[] hashes(Supplier<Simulator> engine, int steps) {
+        Randomizer.reset();
+        Simulator simulator = engine.get();
+        long[] hashes = new long[steps + 1];
+        hashes[0] = simulator.getStateHash();
+        for (int step = 1; step <= steps; step++) {
+            simulator.simulateOneStep();
+            hashes[step] = simulator.getStateHash();
+            checkCounts(simulator.getField(), step);
+        }
+        simulator.setUpdateMode(UpdateMode.SEQUENTIAL); // releases any stepper threads
+        return hashes;
+    }
+
+    /**
+     * Check that the region counts and density pyramid of a field, where it
+     * keeps them, agree with a scan of its positions over every block of the
+     * pyramid's finest level, and exit with status 1 if they do not.
+     */
+    private static void checkCounts(Field field, int step) {
+        DensityPyramid pyramid = field.getDensityPyramid();
+        int size = DensityPyramid.BASE_BLOCK;
+        for (int top = 0; top < field.getDepth(); top += size) {
+            for (int left = 0; left < field.getWidth(); left += size) {
+                int[] scanned = new int[Species.values().length];
+                for (int row = top; row < Math.min(top + size, field.getDepth()); row++) {
+                    for (int col = left; col < Math.min(left + size, field.getWidth()); col++) {
+                        scanned[field.animalAt(row, col).ordinal()]++;
+                    }
+                }
+                for (Species species : Species.values()) {
+                    if (species == Species.EMPTY || species == Species.PLANT) {
+                        continue;
+                    }
+                    int counted = field.countInRegion(species, top, left, top + size - 1, left + size - 1);
+                    if (counted != scanned[species.ordinal()]) {
+                        System.out.printf("FAILED: at step %d the region counts hold %d %s at (%d, %d),"
+                                + " the field %d%n", step, counted, species, top, left, scanned[species.ordinal()]);
+                        System.exit(1);
+                    }
+                    if (pyramid != null
+                            && pyramid.getCount(0, top / size, left / size, species.ordinal()) != counted) {
+                        System.out.printf("FAILED: at step %d the density pyramid holds %d %s at (%d, %d),"
+                                + " the field %d%n", step, pyramid.getCount(0, top / size, left / size,
+                                species.ordinal()), species, top, left, counted);
+                        System.exit(1);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,529 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Records a run of the simulation as a compact binary stream that can be
+ * replayed, and sought through, without simulating again.
+ * <p>
+ * While it records, the log is told of every event of the run as it happens:
+ * the lifecycle reports births and deaths by cause, animals report their
+ * moves, and the plant layer reports bites, plants trampled by animals taking
+ * their place and seedlings. Every step is written as a record of the births
+ * and deaths by cause at that step, followed by the events themselves. An
+ * animal's events are netted over the step, so the record holds where each
+ * animal that died or moved was at the start of the step, which way it moved
+ * and the newborns still alive at its end; the plant events are kept in full.
+ * Each animal event is a single number: the gap from the previous event's
+ * position, times eight, plus the direction moved, the cause of death or the
+ * species born. Every few steps a keyframe holding the whole field is written
+ * instead.
+ * <p>
+ * A log can instead record only what the view shows, which is all a player
+ * needs and far smaller: each keyframe holds the species code of every
+ * position, the animal there or else PLANT or EMPTY, and each step after it
+ * only the runs of positions whose code changed, as the gap since the
+ * previous run, the length of the run and its codes.
+ * <p>
+ * Each keyframe and the steps that follow it up to the next keyframe make up
+ * a block, which is compressed on its own. An index of the blocks closes the
+ * file, so a reader can start from the keyframe nearest any step by
+ * decompressing a single block.
+ *
+ * @author Krish Shah
+ * @version 3.0
+ */
+public class EventLog implements Closeable {
+    // Marks the start of a log file.
+    static final int MAGIC = 0x50504C47; // "PPLG"
+    // The version of the file format.
+    static final int VERSION = 4;
+    // Tags introducing each kind of record.
+    static final int KEYFRAME = 'K', DELTA = 'D', INDEX = 'I';
+    // The kinds of plant event: bitten, trampled by an animal taking its place, and seeded.
+    static final int BITE = 'B', TRAMPLE = 'T', SEED = 'S';
+    // The default number of steps between keyframes.
+    private static final int DEFAULT_KEYFRAME_INTERVAL = 100;
+
+    // Where the log is written.
+    private final DataOutputStream file;
+    // The bytes written to the file so far.
+    private long written;
+    // The records of the block being recorded, before compression.
+    private final ByteArrayOutputStream blockBytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(blockBytes);
+    // Compresses each block, into scratch space reused from block to block.
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] compressed = new byte[1 << 16];
+    // The dimensions of the recorded field.
+    private final int depth, width;
+    // The number of steps between keyframes.
+    private final int keyframeInterval;
+    // What the log records of each step.
+    private final LogContent content;
+    // The code shown at each position in the previous frame and in this one, when recording frames.
+    private byte[] previousFrame, currentFrame;
+    // The bytes the steps recorded would take as raw frames, one byte per position each.
+    private long rawBytes;
+    // The step of each keyframe written and the file offset of its block.
+    private final List<long[]> keyframes = new ArrayList<>();
+    // The moves since the last record: the animal, and the positions it moved from and to.
+    private Animal[] movers = new Animal[64];
+    private int[] moves = new int[2 * 64];
+    private int moveCount;
+    // The births since the last record: the newborn and its position.
+    private Animal[] newborns = new Animal[64];
+    private int[] births = new int[64];
+    private int birthCount;
+    // The deaths since the last record: the animal, its position and the cause.
+    private Animal[] dead = new Animal[64];
+    private int[] deaths = new int[2 * 64];
+    private int deathCount;
+    // The plant events since the last record, three values each: position, kind and height.
+    private int[] plantEvents = new int[3 * 64];
+    private int plantEventCount;
+    // The lifecycle and plant layer reporting events to the log, or null.
+    private Lifecycle lifecycle;
+    private Plant plants;
+    // The last step recorded, or -1 if nothing has been recorded yet.
+    private int lastStep = -1;
+
+    /**
+     * Create a log of every event for a field of the given size.
+     *
+     * @param fileName The file to write.
+     * @param depth    The depth of the field.
+     * @param width    The width of the field.
+     * @throws IOException If the file cannot be created.
+     */
+    public EventLog(String fileName, int depth, int width) throws IOException {
+        this(fileName, depth, width, LogContent.EVENTS);
+    }
+
+    /**
+     * Create a log for a field of the given size.
+     *
+     * @param fileName The file to write.
+     * @param depth    The depth of the field.
+     * @param width    The width of the field.
+     * @param content  What the log records of each step.
+     * @throws IOException If the file cannot be created.
+     */
+    public EventLog(String fileName, int depth, int width, LogContent content) throws IOException {
+        this(fileName, depth, width, content, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Create a log for a field of the given size.
+     *
+     * @param fileName         The file to write.
+     * @param depth            The depth of the field.
+     * @param width            The width of the field.
+     * @param content          What the log records of each step.
+     * @param keyframeInterval The number of steps between keyframes.
+     * @throws IOException If the file cannot be created.
+     */
+    public EventLog(String fileName, int depth, int width, LogContent content, int keyframeInterval)
+            throws IOException {
+        this.depth = depth;
+        this.width = width;
+        this.content = content;
+        this.keyframeInterval = keyframeInterval;
+        if (content == LogContent.FRAMES) {
+            previousFrame = new byte[depth * width];
+            currentFrame = new byte[depth * width];
+        }
+        file = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16));
+        file.writeInt(MAGIC);
+        file.writeInt(VERSION);
+        file.writeInt(depth);
+        file.writeInt(width);
+        file.writeInt(keyframeInterval);
+        file.writeInt(content.ordinal());
+        written = 6 * Integer.BYTES;
+    }
+
+    /**
+     * Record the state of the field at the end of a step. The first step
+     * recorded is a keyframe, and so is any step that does not follow the
+     * last one recorded in the same run, since the events in between are
+     * not known. A log of frames needs no events, and is not told of any.
+     *
+     * @param step    The step just simulated.
+     * @param time    The time of day at that step.
+     * @param isSunny The weather at that step.
+     * @param field   The field after the step.
+     * @throws IOException If the record cannot be written.
+     */
+    public void record(int step, int time, boolean isSunny, Field field) throws IOException {
+        if (field.getDepth() != depth || field.getWidth() != width) {
+            throw new IllegalArgumentException("field size does not match the log");
+        }
+        boolean keyframe = step % keyframeInterval == 0 || step != lastStep + 1 || content == LogContent.EVENTS
+                && (field.getLifecycle() != lifecycle || field.getPlants() != plants);
+        lastStep = step;
+        if (keyframe) {
+            flushBlock();
+            keyframes.add(new long[]{step, written});
+            out.writeByte(KEYFRAME);
+        } else {
+            out.writeByte(DELTA);
+        }
+        VarInt.write(out, step);
+        out.writeByte(time);
+        out.writeBoolean(isSunny);
+        rawBytes += (long) depth * width;
+        if (content == LogContent.FRAMES) {
+            writeFrame(field, keyframe);
+            return;
+        }
+        Lifecycle stepLifecycle = field.getLifecycle();
+        VarInt.write(out, stepLifecycle.getBirths());
+        for (DeathCause cause : DeathCause.values()) {
+            VarInt.write(out, stepLifecycle.getDeaths(cause));
+        }
+        if (keyframe) {
+            writeKeyframe(field);
+            attach(stepLifecycle, field.getPlants());
+        } else {
+            writeEvents();
+        }
+        Arrays.fill(movers, 0, moveCount, null);
+        Arrays.fill(newborns, 0, birthCount, null);
+        Arrays.fill(dead, 0, deathCount, null);
+        moveCount = birthCount = deathCount = plantEventCount = 0;
+    }
+
+    /**
+     * Stop being told of the events of the run. The log can go on
+     * recording; its next record is a keyframe.
+     */
+    public void detach() {
+        attach(null, null);
+    }
+
+    /**
+     * @return The bytes the steps recorded so far would take as raw frames,
+     *         at one byte per position.
+     */
+    public long getRawBytes() {
+        return rawBytes;
+    }
+
+    /**
+     * @return The bytes written to the file so far.
+     */
+    public long getWrittenBytes() {
+        return written;
+    }
+
+    /**
+     * Write the last block and the index of blocks, and close the file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        detach();
+        flushBlock();
+        long indexOffset = written;
+        out.writeByte(INDEX);
+        VarInt.write(out, keyframes.size());
+        for (long[] keyframe : keyframes) {
+            VarInt.write(out, (int) keyframe[0]);
+            out.writeLong(keyframe[1]);
+        }
+        out.writeLong(indexOffset);
+        blockBytes.writeTo(file);
+        written += blockBytes.size();
+        file.close();
+        deflater.end();
+    }
+
+    /**
+     * Note that an animal has been born.
+     *
+     * @param anAnimal The newborn, at its location.
+     */
+    void born(Animal anAnimal) {
+        if (birthCount == newborns.length) {
+            newborns = Arrays.copyOf(newborns, 2 * birthCount);
+            births = Arrays.copyOf(births, 2 * birthCount);
+        }
+        newborns[birthCount] = anAnimal;
+        births[birthCount++] = indexOf(anAnimal.getLocation());
+    }
+
+    /**
+     * Note that an animal has died.
+     *
+     * @param anAnimal The animal, at the location where it died.
+     * @param cause    Why it died.
+     */
+    void died(Animal anAnimal, DeathCause cause) {
+        if (deathCount == dead.length) {
+            dead = Arrays.copyOf(dead, 2 * deathCount);
+            deaths = Arrays.copyOf(deaths, 4 * deathCount);
+        }
+        dead[deathCount] = anAnimal;
+        deaths[2 * deathCount] = indexOf(anAnimal.getLocation());
+        deaths[2 * deathCount++ + 1] = cause.ordinal();
+    }
+
+    /**
+     * Note that an animal has moved to an adjacent location.
+     *
+     * @param anAnimal The animal.
+     * @param from     Where it was.
+     * @param to       Where it is now.
+     */
+    void moved(Animal anAnimal, Location from, Location to) {
+        if (moveCount == movers.length) {
+            movers = Arrays.copyOf(movers, 2 * moveCount);
+            moves = Arrays.copyOf(moves, 4 * moveCount);
+        }
+        movers[moveCount] = anAnimal;
+        moves[2 * moveCount] = indexOf(from);
+        moves[2 * moveCount++ + 1] = direction(from, to);
+    }
+
+    /**
+     * Note an event of a plant.
+     *
+     * @param row    The row of the plant.
+     * @param col    The column of the plant.
+     * @param kind   BITE, TRAMPLE or SEED.
+     * @param height The plant's height after the event, or -1 if it is gone.
+     */
+    void plantEvent(int row, int col, int kind, int height) {
+        if (3 * plantEventCount == plantEvents.length) {
+            plantEvents = Arrays.copyOf(plantEvents, 2 * plantEvents.length);
+        }
+        int i = 3 * plantEventCount++;
+        plantEvents[i] = row * width + col;
+        plantEvents[i + 1] = kind;
+        plantEvents[i + 2] = height;
+    }
+
+    /**
+     * Start being told of the events of the given lifecycle and plant layer.
+     */
+    private void attach(Lifecycle newLifecycle, Plant newPlants) {
+        if (lifecycle != null) {
+            lifecycle.setEventLog(null);
+        }
+        if (plants != null) {
+            plants.setEventLog(null);
+        }
+        lifecycle = newLifecycle;
+        plants = newPlants;
+        if (lifecycle != null) {
+            lifecycle.setEventLog(this);
+        }
+        if (plants != null) {
+            plants.setEventLog(this);
+        }
+    }
+
+    /**
+     * Write the whole field: the animals as runs of equal species and
+     * the plants as gaps between planted positions with their heights.
+     */
+    private void writeKeyframe(Field field) throws IOException {
+        Plant layer = field.getPlants();
+        int runLength = 0;
+        byte runCode = 0;
+        for (int index = 0; index < depth * width; index++) {
+            byte code = field.animalAt(index / width, index % width).code();
+            if (runLength > 0 && code != runCode) {
+                VarInt.write(out, runLength);
+                out.writeByte(runCode);
+                runLength = 0;
+            }
+            runCode = code;
+            runLength++;
+        }
+        VarInt.write(out, runLength);
+        out.writeByte(runCode);
+
+        VarInt.write(out, layer.getCount());
+        int previous = -1;
+        for (int index = 0; index < depth * width; index++) {
+            int height = layer.getHeight(index / width, index % width);
+            if (height >= 0) {
+                VarInt.write(out, index - previous - 1);
+                VarInt.write(out, height);
+                previous = index;
+            }
+        }
+    }
+
+    /**
+     * Write what the view shows at each position: every code in a keyframe,
+     * and otherwise the runs of positions whose code differs from the
+     * previous frame.
+     */
+    private void writeFrame(Field field, boolean keyframe) throws IOException {
+        field.copyCodes(currentFrame);
+        if (keyframe) {
+            out.write(currentFrame);
+        } else {
+            int runs = 0;
+            for (int index = 0; index < currentFrame.length; index++) {
+                if (currentFrame[index] != previousFrame[index]
+                        && (index == 0 || currentFrame[index - 1] == previousFrame[index - 1])) {
+                    runs++;
+                }
+            }
+            VarInt.write(out, runs);
+            int end = 0;
+            int index = 0;
+            while (index < currentFrame.length) {
+                if (currentFrame[index] == previousFrame[index]) {
+                    index++;
+                    continue;
+                }
+                int start = index;
+                while (index < currentFrame.length && currentFrame[index] != previousFrame[index]) {
+                    index++;
+                }
+                VarInt.write(out, start - end);
+                VarInt.write(out, index - start);
+                out.write(currentFrame, start, index - start);
+                end = index;
+            }
+        }
+        byte[] swap = previousFrame;
+        previousFrame = currentFrame;
+        currentFrame = swap;
+    }
+
+    /**
+     * Write the events of the step: the moves, the deaths and the births,
+     * each sorted by position, then the plant events by position and in the
+     * order they happened.
+     */
+    private void writeEvents() throws IOException {
+        // an animal that died after moving died where it started, and a newborn that died was never there
+        Map<Animal, Integer> deathOf = new IdentityHashMap<>(2 * deathCount);
+        for (int i = 0; i < deathCount; i++) {
+            deathOf.put(dead[i], i);
+        }
+        long[] events = new long[Math.max(moveCount, Math.max(birthCount, deathCount))];
+        int count = 0;
+        for (int i = 0; i < moveCount; i++) {
+            Integer death = deathOf.get(movers[i]);
+            if (death == null) {
+                events[count++] = (long) moves[2 * i] << 3 | moves[2 * i + 1];
+            } else {
+                deaths[2 * death] = moves[2 * i];
+            }
+        }
+        writeSorted(events, count);
+        count = 0;
+        for (int i = 0; i < birthCount; i++) {
+            Integer death = deathOf.get(newborns[i]);
+            if (death == null) {
+                events[count++] = (long) births[i] << 3 | Species.of(newborns[i]).code();
+            } else {
+                deaths[2 * death] = -1;
+            }
+        }
+        long[] born = Arrays.copyOf(events, count);
+        count = 0;
+        for (int i = 0; i < deathCount; i++) {
+            if (deaths[2 * i] >= 0) {
+                events[count++] = (long) deaths[2 * i] << 3 | deaths[2 * i + 1];
+            }
+        }
+        writeSorted(events, count);
+        writeSorted(born, born.length);
+
+        long[] order = new long[plantEventCount];
+        for (int i = 0; i < plantEventCount; i++) {
+            order[i] = (long) plantEvents[3 * i] << 32 | i;
+        }
+        Arrays.sort(order);
+        VarInt.write(out, plantEventCount);
+        int previous = 0;
+        for (long key : order) {
+            int i = 3 * (int) key;
+            VarInt.write(out, plantEvents[i] - previous); // zero for another event of the same plant
+            out.writeByte(plantEvents[i + 1]);
+            if (plantEvents[i + 1] != TRAMPLE) {
+                VarInt.write(out, plantEvents[i + 2] + 1);
+            }
+            previous = plantEvents[i];
+        }
+    }
+
+    /**
+     * Write events packed as a position above three bits of value, sorted by
+     * position, each as the gap from the position before times eight plus
+     * its value.
+     */
+    private void writeSorted(long[] events, int count) throws IOException {
+        Arrays.sort(events, 0, count);
+        VarInt.write(out, count);
+        long previous = -1;
+        for (int i = 0; i < count; i++) {
+            long position = events[i] >>> 3;
+            VarInt.write(out, (int) ((position - previous - 1) << 3 | events[i] & 7));
+            previous = position;
+        }
+    }
+
+    /**
+     * Return the direction from a location to an adjacent one, from 0 to 7
+     * in the order of IntentCommitStepper's neighbours.
+     */
+    private static int direction(Location from, Location to) {
+        int rowOffset = to.row() - from.row(), colOffset = to.col() - from.col();
+        if (Math.abs(rowOffset) > 1 || Math.abs(colOffset) > 1 || (rowOffset == 0 && colOffset == 0)) {
+            throw new IllegalArgumentException("not a move to an adjacent location: " + from + " to " + to);
+        }
+        int code = (rowOffset + 1) * 3 + colOffset + 1; // 0 to 8, skipping 4 for no move
+        return code < 4 ? code : code - 1;
+    }
+
+    /**
+     * Return the position of a location counted row by row.
+     */
+    private int indexOf(Location location) {
+        return location.row() * width + location.col();
+    }
+
+    /**
+     * Compress the records of the current block and write them to the file.
+     */
+    private void flushBlock() throws IOException {
+        if (blockBytes.size() == 0) {
+            return;
+        }
+        byte[] records = blockBytes.toByteArray();
+        deflater.reset();
+        deflater.setInput(records);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        file.writeInt(records.length);
+        file.writeInt(length);
+        file.write(compressed, 0, length);
+        written += 2 * Integer.BYTES + length;
+        blockBytes.reset();
+    }
+}
@@ -0,0 +1,426 @@
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Replays a run recorded by an EventLog. The reader can seek to any recorded
+ * step by decompressing the block of the nearest keyframe before it and
+ * applying the events recorded since, and can then move forward one step at a
+ * time, decompressing each block only when it is reached. The state reached
+ * can be shown through a SimulatorView.
+ * <p>
+ * A log of frames holds only what the view shows, so it tells of no events,
+ * plant heights or plants hidden beneath animals.
+ *
+ * @author Krish Shah
+ * @version 3.0
+ */
+public class EventLogReader implements SpeciesGrid, Closeable {
+    // The log file.
+    private final RandomAccessFile file;
+    // The dimensions of the recorded field.
+    private final int depth, width;
+    // The step of each keyframe and the file offset of its block.
+    private final int[] keyframeSteps;
+    private final long[] keyframeOffsets;
+    // What the log records of each step.
+    private final LogContent content;
+    // The species code of the animal at each position, or in a log of frames the code shown there.
+    private final byte[] animals;
+    // The plant height at each position, or -1; null in a log of frames.
+    private final short[] heights;
+    // The births and deaths by cause at the current step.
+    private final int[] deaths = new int[DeathCause.values().length];
+    private int births;
+    // The number of moves, and of plant events by kind, at the current step.
+    private int moves, bites, trampled, seedlings;
+    // Scratch space for the positions animals move or are born into, and their species codes.
+    private int[] arrivals = new int[64];
+    private byte[] arrivalCodes = new byte[64];
+    // Decompresses each block.
+    private final Inflater inflater = new Inflater();
+    // The compressed and decompressed bytes of the current block.
+    private byte[] compressed = new byte[0];
+    private byte[] records = new byte[0];
+    // The block being read, or -1 before the first seek.
+    private int currentBlock = -1;
+    // Reads the records of the current block following the current step.
+    private DataInputStream in;
+    // The current step, time of day and weather.
+    private int step, time;
+    private boolean isSunny;
+
+    /**
+     * Open a log for replay.
+     *
+     * @param fileName The file written by an EventLog.
+     * @throws IOException If the file cannot be read or is not a log.
+     */
+    public EventLogReader(String fileName) throws IOException {
+        file = new RandomAccessFile(fileName, "r");
+        if (file.readInt() != EventLog.MAGIC || file.readInt() != EventLog.VERSION) {
+            file.close();
+            throw new IOException(fileName + " is not an event log");
+        }
+        depth = file.readInt();
+        width = file.readInt();
+        file.readInt(); // keyframe interval
+        content = LogContent.values()[file.readInt()];
+        animals = new byte[depth * width];
+        heights = content == LogContent.EVENTS ? new short[depth * width] : null;
+
+        file.seek(file.length() - Long.BYTES);
+        file.seek(file.readLong());
+        if (file.readUnsignedByte() != EventLog.INDEX) {
+            file.close();
+            throw new IOException(fileName + " has no keyframe index");
+        }
+        int count = VarInt.read(file);
+        keyframeSteps = new int[count];
+        keyframeOffsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            keyframeSteps[i] = VarInt.read(file);
+            keyframeOffsets[i] = file.readLong();
+        }
+        step = -1;
+    }
+
+    /**
+     * Move to the given step, starting from the nearest keyframe at or before it.
+     *
+     * @param target The step to move to.
+     * @throws IOException If the log cannot be read or does not contain the step.
+     */
+    public void seek(int target) throws IOException {
+        int k = Arrays.binarySearch(keyframeSteps, target);
+        if (k < 0) {
+            k = -k - 2; // the last keyframe before the target
+        }
+        if (k < 0) {
+            throw new IOException("step " + target + " was not recorded");
+        }
+        // carry on within the current block if the target is ahead in it
+        if (k != currentBlock || step > target) {
+            loadBlock(k);
+            readRecord();
+        }
+        while (step < target) {
+            if (!next()) {
+                throw new IOException("step " + target + " was not recorded");
+            }
+        }
+    }
+
+    /**
+     * Move forward to the next recorded step.
+     *
+     * @return false if there are no more steps.
+     * @throws IOException If the log cannot be read.
+     */
+    public boolean next() throws IOException {
+        if (currentBlock < 0) {
+            seek(keyframeSteps[0]);
+            return true;
+        }
+        if (in.available() == 0) {
+            if (currentBlock + 1 >= keyframeSteps.length) {
+                return false;
+            }
+            loadBlock(currentBlock + 1);
+        }
+        readRecord();
+        return true;
+    }
+
+    /**
+     * @return What the log records of each step.
+     */
+    public LogContent getContent() {
+        return content;
+    }
+
+    /**
+     * @return The current step.
+     */
+    public int getStep() {
+        return step;
+    }
+
+    /**
+     * @return The time of day at the current step.
+     */
+    public int getTime() {
+        return time;
+    }
+
+    /**
+     * @return The weather at the current step.
+     */
+    public boolean isSunny() {
+        return isSunny;
+    }
+
+    /**
+     * @return The number of births at the current step.
+     */
+    public int getBirths() {
+        return births;
+    }
+
+    /**
+     * Return the number of deaths from a cause at the current step.
+     *
+     * @param cause The cause of death.
+     * @return The number of animals that died of it.
+     */
+    public int getDeaths(DeathCause cause) {
+        return deaths[cause.ordinal()];
+    }
+
+    /**
+     * @return The number of animals that moved at the current step, leaving
+     *         out any that died later in the step.
+     */
+    public int getMoves() {
+        return moves;
+    }
+
+    /**
+     * @return The number of bites taken from plants at the current step.
+     */
+    public int getBites() {
+        return bites;
+    }
+
+    /**
+     * @return The number of plants trampled by animals taking their place at the current step.
+     */
+    public int getTrampled() {
+        return trampled;
+    }
+
+    /**
+     * @return The number of seedlings at the current step.
+     */
+    public int getSeedlings() {
+        return seedlings;
+    }
+
+    /**
+     * Return the height of the plant at a position at the current step.
+     *
+     * @param row The row of the position.
+     * @param col The column of the position.
+     * @return The plant's height, or -1 if there is no plant.
+     * @throws IllegalStateException If the log holds only frames.
+     */
+    public int getPlantHeight(int row, int col) {
+        if (heights == null) {
+            throw new IllegalStateException("a log of frames records no plant heights");
+        }
+        return heights[row * width + col];
+    }
+
+    @Override
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public Species animalAt(int row, int col) {
+        byte code = animals[row * width + col];
+        return code == Species.PLANT.code() ? Species.EMPTY : Species.fromCode(code);
+    }
+
+    @Override
+    public boolean hasPlantAt(int row, int col) {
+        if (heights == null) {
+            // an animal hides any plant beneath it
+            return animals[row * width + col] == Species.PLANT.code();
+        }
+        return heights[row * width + col] >= 0;
+    }
+
+    @Override
+    public void copyCodes(byte[] codes) {
+        if (heights == null) {
+            System.arraycopy(animals, 0, codes, 0, animals.length);
+        } else {
+            SpeciesGrid.super.copyCodes(codes);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        file.close();
+    }
+
+    /**
+     * Read a keyframe or delta record and apply it to the current state.
+     */
+    private void readRecord() throws IOException {
+        int tag = in.readUnsignedByte();
+        step = VarInt.read(in);
+        time = in.readUnsignedByte();
+        isSunny = in.readBoolean();
+        if (content == LogContent.FRAMES) {
+            readFrame(tag);
+            return;
+        }
+        births = VarInt.read(in);
+        for (int i = 0; i < deaths.length; i++) {
+            deaths[i] = VarInt.read(in);
+        }
+        if (tag == EventLog.KEYFRAME) {
+            moves = bites = trampled = seedlings = 0;
+            int index = 0;
+            while (index < animals.length) {
+                int runLength = VarInt.read(in);
+                byte code = in.readByte();
+                Arrays.fill(animals, index, index + runLength, code);
+                index += runLength;
+            }
+            Arrays.fill(heights, (short) -1);
+            int plantCount = VarInt.read(in);
+            index = -1;
+            for (int i = 0; i < plantCount; i++) {
+                index += VarInt.read(in) + 1;
+                heights[index] = (short) VarInt.read(in);
+            }
+        } else if (tag == EventLog.DELTA) {
+            readEvents();
+        } else {
+            throw new IOException("unexpected record " + tag);
+        }
+    }
+
+    /**
+     * Read the codes of every position from a keyframe, or apply the runs
+     * of changed positions of a later frame.
+     */
+    private void readFrame(int tag) throws IOException {
+        if (tag == EventLog.KEYFRAME) {
+            in.readFully(animals);
+        } else if (tag == EventLog.DELTA) {
+            int runs = VarInt.read(in);
+            int index = 0;
+            for (int i = 0; i < runs; i++) {
+                index += VarInt.read(in);
+                int length = VarInt.read(in);
+                in.readFully(animals, index, length);
+                index += length;
+            }
+        } else {
+            throw new IOException("unexpected record " + tag);
+        }
+    }
+
+    /**
+     * Apply the events of a step: the animals that died or moved leave
+     * their positions, then those that moved and the newborns take theirs,
+     * and the plants grow a step before their own events are applied.
+     */
+    private void readEvents() throws IOException {
+        moves = VarInt.read(in);
+        int arriving = 0;
+        int index = -1;
+        for (int i = 0; i < moves; i++) {
+            int event = VarInt.read(in);
+            index += (event >>> 3) + 1;
+            int direction = (event & 7) < 4 ? event & 7 : (event & 7) + 1; // 0 to 8, skipping no move
+            int to = index + (direction / 3 - 1) * width + direction % 3 - 1;
+            arriving = arrive(arriving, to, animals[index]);
+            animals[index] = Species.EMPTY.code();
+        }
+        int count = VarInt.read(in);
+        index = -1;
+        for (int i = 0; i < count; i++) {
+            index += (VarInt.read(in) >>> 3) + 1; // the cause is already counted
+            animals[index] = Species.EMPTY.code();
+        }
+        count = VarInt.read(in);
+        index = -1;
+        for (int i = 0; i < count; i++) {
+            int event = VarInt.read(in);
+            index += (event >>> 3) + 1;
+            arriving = arrive(arriving, index, (byte) (event & 7));
+        }
+        for (int i = 0; i < arriving; i++) {
+            animals[arrivals[i]] = arrivalCodes[i];
+        }
+
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = (short) Plant.grown(heights[i]);
+        }
+        bites = trampled = seedlings = 0;
+        count = VarInt.read(in);
+        index = 0;
+        for (int i = 0; i < count; i++) {
+            index += VarInt.read(in);
+            int kind = in.readUnsignedByte();
+            if (kind == EventLog.TRAMPLE) {
+                trampled++;
+                heights[index] = -1;
+            } else {
+                if (kind == EventLog.BITE) {
+                    bites++;
+                } else {
+                    seedlings++;
+                }
+                heights[index] = (short) (VarInt.read(in) - 1);
+            }
+        }
+    }
+
+    /**
+     * Note that an animal of the given species arrives at a position, and
+     * return the number of arrivals noted.
+     */
+    private int arrive(int arriving, int index, byte code) {
+        if (arriving == arrivals.length) {
+            arrivals = Arrays.copyOf(arrivals, 2 * arriving);
+            arrivalCodes = Arrays.copyOf(arrivalCodes, 2 * arriving);
+        }
+        arrivals[arriving] = index;
+        arrivalCodes[arriving] = code;
+        return arriving + 1;
+    }
+
+    /**
+     * Read and decompress a block, leaving its keyframe to be read.
+     */
+    private void loadBlock(int b) throws IOException {
+        file.seek(keyframeOffsets[b]);
+        int length = file.readInt();
+        int compressedLength = file.readInt();
+        if (compressed.length < compressedLength) {
+            compressed = new byte[compressedLength];
+        }
+        if (records.length < length) {
+            records = new byte[length];
+        }
+        file.readFully(compressed, 0, compressedLength);
+        inflater.reset();
+        inflater.setInput(compressed, 0, compressedLength);
+        try {
+            if (inflater.inflate(records, 0, length) != length) {
+                throw new IOException("block " + b + " is truncated");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("block " + b + " is corrupt", e);
+        }
+        in = new DataInputStream(new ByteArrayInputStream(records, 0, length));
+        currentBlock = b;
+    }
+}
@@ -0,0 +1,12 @@
+/**
+ * The kinds of file a FrameExporter can write a run's frames to.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public enum ExportFormat {
+    // A directory of numbered PNG images, one per frame.
+    PNG,
+    // A single animated GIF that loops forever.
+    GIF
+}
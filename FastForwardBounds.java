@@ -0,0 +1,208 @@
+import java.util.Arrays;
+
+/**
+ * Error bounds of a mean-field fast-forward, measured against full runs of
+ * the agents rather than taken from the model's own fit. An ensemble of
+ * seeded simulations is each calibrated and projected to the target step, as
+ * Simulator.fastForward does, and then stepped on through the same stretch
+ * agent by agent. The error of each projection is the log of the ratio of
+ * the full run's population, averaged over its last day, to the projected
+ * one, counting one more of each so that dying out is a finite error. The
+ * bounds of a species are the quantiles of its errors either side of
+ * COVERAGE of the ensemble.
+ * <p>
+ * Bounds only describe fast-forwards like those measured: from a freshly
+ * populated field of the same size and update mode, calibrated over the same
+ * number of steps and projected to the same step.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public class FastForwardBounds {
+    // The share of the ensemble's errors the bounds take in. The rest include the runs whose
+    // predators crash or boom, which the mean field cannot foresee.
+    public static final double COVERAGE = 0.75;
+    // The widest bound a projection may have to be of use: out by a factor of two either way.
+    public static final double MAX_USABLE_BOUND = 1.0;
+
+    // The fast-forward measured: the size of field, how the agents are updated, the steps
+    // calibrated over and the step projected to.
+    private final int depth, width;
+    private final UpdateMode mode;
+    private final int calibrationSteps, targetStep;
+    // The number of runs measured.
+    private final int runs;
+    // The lower and upper quantiles of the log error of each species, by species ordinal.
+    private final double[] lower, upper;
+
+    private FastForwardBounds(int depth, int width, UpdateMode mode, int calibrationSteps, int targetStep,
+                              int runs, double[] lower, double[] upper) {
+        this.depth = depth;
+        this.width = width;
+        this.mode = mode;
+        this.calibrationSteps = calibrationSteps;
+        this.targetStep = targetStep;
+        this.runs = runs;
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    /**
+     * Measure the errors of fast-forwards from fresh fields over an ensemble
+     * of seeds, each run on the calling thread.
+     *
+     * @param depth            The depth of the field.
+     * @param width            The width of the field.
+     * @param mode             How the agents are updated.
+     * @param calibrationSteps The number of steps calibrated over, at least two days.
+     * @param targetStep       The step projected to.
+     * @param firstSeed        The seed of the first run; the others follow it.
+     * @param seeds            The number of runs, at least two.
+     * @return The bounds measured.
+     */
+    public static FastForwardBounds measure(int depth, int width, UpdateMode mode, int calibrationSteps,
+                                            int targetStep, long firstSeed, int seeds) {
+        if (seeds < 2) {
+            throw new IllegalArgumentException("at least two runs are needed to bound the error");
+        }
+        double[][] errors = new double[Species.values().length][seeds];
+        for (int run = 0; run < seeds; run++) {
+            Randomizer.setSeed(firstSeed + run);
+            Simulator simulator = new Simulator(depth, width, false);
+            simulator.setUpdateMode(mode);
+            long[] projected = simulator.project(targetStep, calibrationSteps);
+            long[] full = new long[projected.length];
+            while (simulator.getStep() < targetStep) {
+                simulator.simulateOneStep();
+                if (simulator.getStep() > targetStep - MeanFieldModel.STEPS_PER_DAY) {
+                    long[] populations = simulator.getPopulations();
+                    for (int s = 0; s < full.length; s++) {
+                        full[s] += populations[s];
+                    }
+                }
+            }
+            simulator.setUpdateMode(UpdateMode.SEQUENTIAL); // releases any stepper threads
+            for (int s = 0; s < full.length; s++) {
+                errors[s][run] = logError(full[s] / MeanFieldModel.STEPS_PER_DAY, projected[s]);
+            }
+        }
+        double[] lower = new double[errors.length];
+        double[] upper = new double[errors.length];
+        for (int s = 0; s < errors.length; s++) {
+            Arrays.sort(errors[s]);
+            lower[s] = quantile(errors[s], (1 - COVERAGE) / 2);
+            upper[s] = quantile(errors[s], (1 + COVERAGE) / 2);
+        }
+        return new FastForwardBounds(depth, width, mode, calibrationSteps, targetStep, seeds, lower, upper);
+    }
+
+    /**
+     * Return the error of a projection on the scale the bounds are measured on.
+     *
+     * @param actual    The population of the full run.
+     * @param projected The projected population.
+     * @return The log of the ratio of the two, each counted one higher.
+     */
+    public static double logError(long actual, long projected) {
+        return Math.log((actual + 1.0) / (projected + 1.0));
+    }
+
+    /**
+     * Check whether the bounds describe a fast-forward.
+     *
+     * @param depth            The depth of the field.
+     * @param width            The width of the field.
+     * @param mode             How the agents are updated.
+     * @param calibrationSteps The number of steps calibrated over.
+     * @param targetStep       The step projected to, from a fresh field.
+     * @return true if the bounds were measured for the same fast-forward.
+     */
+    public boolean describes(int depth, int width, UpdateMode mode, int calibrationSteps, int targetStep) {
+        return this.depth == depth && this.width == width && this.mode == mode
+                && this.calibrationSteps == calibrationSteps && this.targetStep == targetStep;
+    }
+
+    /**
+     * Return the smallest log error of a species within the bounds: how far
+     * below the projection the full run may be.
+     *
+     * @param species The species.
+     * @return The lower quantile of its log errors, negative where the full
+     *         runs fall short of the projection.
+     */
+    public double getLower(Species species) {
+        return lower[species.ordinal()];
+    }
+
+    /**
+     * Return the largest log error of a species within the bounds: how far
+     * above the projection the full run may be.
+     *
+     * @param species The species.
+     * @return The upper quantile of its log errors.
+     */
+    public double getUpper(Species species) {
+        return upper[species.ordinal()];
+    }
+
+    /**
+     * Return the bound on the relative error of a projection of a species,
+     * either way.
+     *
+     * @param species The species.
+     * @return The larger of the factors between the projection and the ends
+     *         of its bounds, less one.
+     */
+    public double getErrorBound(Species species) {
+        return Math.expm1(Math.max(-lower[species.ordinal()], upper[species.ordinal()]));
+    }
+
+    /**
+     * Check whether the projection of a species is close enough to be of use.
+     *
+     * @param species The species.
+     * @return true if its error bound is at most MAX_USABLE_BOUND.
+     */
+    public boolean isUsable(Species species) {
+        return getErrorBound(species) <= MAX_USABLE_BOUND;
+    }
+
+    /**
+     * Check whether the projection of every species is close enough to be of use.
+     *
+     * @return true if every species' error bound is at most MAX_USABLE_BOUND.
+     */
+    public boolean isUsable() {
+        for (Species species : Species.values()) {
+            if (!isUsable(species)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of runs the bounds were measured over.
+     */
+    public int getRuns() {
+        return runs;
+    }
+
+    /**
+     * @return The step the measured fast-forwards projected to.
+     */
+    public int getTargetStep() {
+        return targetStep;
+    }
+
+    /**
+     * Return the value at a fraction of the way through sorted values,
+     * interpolating between neighbours.
+     */
+    private static double quantile(double[] sorted, double fraction) {
+        double position = fraction * (sorted.length - 1);
+        int below = (int) Math.floor(position);
+        int above = Math.min(below + 1, sorted.length - 1);
+        return sorted[below] + (position - below) * (sorted[above] - sorted[below]);
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Measures how far a mean-field fast-forward strays from full runs of the
+ * agents, and whether its bounds hold. The bounds are first measured over an
+ * ensemble of seeds. Then, for other seeds, the agents are run step by step to
+ * the target, and a second simulation with the same seed is fast-forwarded to
+ * it within those bounds. The population of each species projected by the
+ * model is compared with the mean over the last day of the full run. Errors
+ * are factors less one, so 100% means out by a factor of two either way.
+ * <pre>
+ *     java FastForwardCheck [depth width calibrationSteps targetStep ensembleSeeds checkedSeeds]
+ * </pre>
+ * The process exits with status 1 if the bounds are too wide to fast-forward
+ * with, or if fewer of the errors fall within them than is likely for bounds
+ * taking in FastForwardBounds.COVERAGE of the errors.
+ *
+ * @author Krish Shah
+ * @version 2.0
+ */
+public class FastForwardCheck {
+    // The first seed of the ensemble the bounds are measured over, apart from the seeds checked.
+    private static final long ENSEMBLE_SEED = 1001;
+    // The chance below which a count of errors within the bounds counts as too few to be bad luck.
+    private static final double SIGNIFICANCE = 0.05;
+
+    /**
+     * Compare fast-forwards with full runs, by default on a 200 by 200 field
+     * calibrated over 480 steps and skipping to step 960, with bounds measured
+     * over 16 seeds and checked on 5 others.
+     *
+     * @param args Optionally the depth, width, calibration steps, target step
+     *             and numbers of seeds measured and checked.
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int width = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int calibrationSteps = args.length > 2 ? Integer.parseInt(args[2]) : 480;
+        int targetStep = args.length > 3 ? Integer.parseInt(args[3]) : 960;
+        int ensembleSeeds = args.length > 4 ? Integer.parseInt(args[4]) : 16;
+        int seeds = args.length > 5 ? Integer.parseInt(args[5]) : 5;
+
+        long started = System.nanoTime();
+        FastForwardBounds bounds = FastForwardBounds.measure(depth, width, UpdateMode.INTENT_COMMIT,
+                calibrationSteps, targetStep, ENSEMBLE_SEED, ensembleSeeds);
+        System.out.printf("bounds over %d runs, taking in %.0f%% of their errors, took %d ms:%n", ensembleSeeds,
+                100 * FastForwardBounds.COVERAGE, (System.nanoTime() - started) / 1_000_000);
+        for (Species species : Species.values()) {
+            if (species != Species.EMPTY) {
+                System.out.printf("  %-8s %+7.1f%% to %+7.1f%%%s%n", species,
+                        100 * Math.expm1(bounds.getLower(species)), 100 * Math.expm1(bounds.getUpper(species)),
+                        bounds.isUsable(species) ? "" : "  too wide to use");
+            }
+        }
+        if (!bounds.isUsable()) {
+            System.out.println("FAILED: the bounds are too wide to fast-forward to step " + targetStep);
+            System.exit(1);
+        }
+
+        int compared = 0, within = 0;
+        for (int seed = 1; seed <= seeds; seed++) {
+            long[] full = fullRun(depth, width, targetStep, seed);
+
+            started = System.nanoTime();
+            Randomizer.setSeed(seed);
+            Simulator simulator = twoPhase(depth, width);
+            long[] projected = simulator.fastForward(targetStep, calibrationSteps, bounds);
+            simulator.setUpdateMode(UpdateMode.SEQUENTIAL); // releases the stepper threads
+            long millis = (System.nanoTime() - started) / 1_000_000;
+
+            System.out.printf("seed %d: fast-forward to step %d took %d ms%n", seed, targetStep, millis);
+            System.out.printf("  %-8s %10s %10s %9s%n", "species", "full", "projected", "error");
+            for (Species species : Species.values()) {
+                if (species == Species.EMPTY) {
+                    continue;
+                }
+                long expected = full[species.ordinal()];
+                long actual = projected[species.ordinal()];
+                double error = FastForwardBounds.logError(expected, actual);
+                boolean inside = error >= bounds.getLower(species) && error <= bounds.getUpper(species);
+                // a species gone from both says nothing of the bounds
+                if (expected > 0 || actual > 0) {
+                    compared++;
+                    within += inside ? 1 : 0;
+                }
+                System.out.printf("  %-8s %10d %10d %+8.1f%%%s%n", species, expected, actual,
+                        100 * Math.expm1(error), inside ? "" : "  outside");
+            }
+        }
+        double chance = binomialAtMost(within, compared, FastForwardBounds.COVERAGE);
+        System.out.printf("%d of %d errors within the bounds; as few or fewer has a chance of %.3f%n",
+                within, compared, chance);
+        if (chance < SIGNIFICANCE) {
+            System.out.println("FAILED: too few errors fall within the bounds");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Return the chance of at most the given number of successes in a number
+     * of trials that each succeed with the given probability.
+     */
+    private static double binomialAtMost(int successes, int trials, double probability) {
+        double total = 0;
+        double term = Math.pow(1 - probability, trials); // none succeed
+        for (int k = 0; k <= successes; k++) {
+            total += term;
+            term *= (double) (trials - k) / (k + 1) * probability / (1 - probability);
+        }
+        return Math.min(1, total);
+    }
+
+    /**
+     * Step the agents to the target and return the mean population of
+     * each species over the last day.
+     */
+    private static long[] fullRun(int depth, int width, int targetStep, long seed) {
+        Randomizer.setSeed(seed);
+        Simulator simulator = twoPhase(depth, width);
+        long[] totals = new long[Species.values().length];
+        while (simulator.getStep() < targetStep) {
+            simulator.simulateOneStep();
+            if (simulator.getStep() > targetStep - MeanFieldModel.STEPS_PER_DAY) {
+                long[] populations = simulator.getPopulations();
+                for (int s = 0; s < totals.length; s++) {
+                    totals[s] += populations[s];
+                }
+            }
+        }
+        simulator.setUpdateMode(UpdateMode.SEQUENTIAL);
+        for (int s = 0; s < totals.length; s++) {
+            totals[s] /= MeanFieldModel.STEPS_PER_DAY;
+        }
+        return totals;
+    }
+
+    /**
+     * Return a headless simulator using the two-phase update, whose mixed
+     * populations last long enough to calibrate on.
+     */
+    private static Simulator twoPhase(int depth, int width) {
+        Simulator simulator = new Simulator(depth, width, false);
+        simulator.setUpdateMode(UpdateMode.INTENT_COMMIT);
+        return simulator;
+    }
+}
@@ -0,0 +1,89 @@
+import java.util.Arrays;
+
+/**
+ * A two-dimensional Fenwick tree (binary indexed tree) of counts over the
+ * positions of a field. Adding to a position and counting the total over any
+ * rectangle of positions both take O(log depth * log width) time, so a
+ * regional count can be kept up to date as the field changes instead of
+ * being found by scanning the rectangle.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public class FenwickGrid {
+    // The dimensions of the grid.
+    private final int depth, width;
+    // The partial sums, one based, row by row with a row of width + 1.
+    private final int[] tree;
+
+    /**
+     * Create a grid of the given dimensions with every count zero.
+     *
+     * @param depth The number of rows.
+     * @param width The number of columns.
+     */
+    public FenwickGrid(int depth, int width) {
+        this.depth = depth;
+        this.width = width;
+        tree = new int[(depth + 1) * (width + 1)];
+    }
+
+    /**
+     * Add to the count at a position.
+     *
+     * @param row   The row of the position.
+     * @param col   The column of the position.
+     * @param delta The amount to add, negative to take away.
+     */
+    public void add(int row, int col, int delta) {
+        for (int r = row + 1; r <= depth; r += r & -r) {
+            int base = r * (width + 1);
+            for (int c = col + 1; c <= width; c += c & -c) {
+                tree[base + c] += delta;
+            }
+        }
+    }
+
+    /**
+     * Return the total count over a rectangle of positions. The bounds
+     * are inclusive and are clipped to the grid.
+     *
+     * @param top    The first row.
+     * @param left   The first column.
+     * @param bottom The last row.
+     * @param right  The last column.
+     * @return The total of the counts in the rectangle.
+     */
+    public int sum(int top, int left, int bottom, int right) {
+        top = Math.max(top, 0);
+        left = Math.max(left, 0);
+        bottom = Math.min(bottom, depth - 1);
+        right = Math.min(right, width - 1);
+        if (top > bottom || left > right) {
+            return 0;
+        }
+        return prefix(bottom + 1, right + 1) - prefix(top, right + 1)
+                - prefix(bottom + 1, left) + prefix(top, left);
+    }
+
+    /**
+     * Set every count back to zero.
+     */
+    public void clear() {
+        Arrays.fill(tree, 0);
+    }
+
+    /**
+     * Return the total count over the first rows and columns.
+     */
+    private int prefix(int rows, int cols) {
+        int total = 0;
+        for (int r = rows; r > 0; r -= r & -r) {
+            int base = r * (width + 1);
+            for (int c = cols; c > 0; c -= c & -c) {
+                total += tree[base + c];
+            }
+        }
+        return total;
+    }
+}
@@ -1,22 +1,37 @@
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Represent a rectangular grid of field positions.
  * Each position is able to store a single animal/object.
  *
  * @author David J. Barnes, Michael Kölling and Krish Shah
- * @version 7.4
+ * @version 7.5
  */
-public class Field {
+public class Field implements SpeciesGrid {
     // A random number generator for providing random locations.
     private static final Random rand = Randomizer.getRandom();
 
     // The dimensions of the field.
     private final int depth, width;
-    // Animals mapped by location.
-    private final Map<Location, Animal> field = new HashMap<>();
+    // Animals by position, row by row.
+    private final Animal[] field;
     // The animals.
     private final List<Animal> animals = new ArrayList<>();
+    // The plants, shared with the other states of this field.
+    private final Plant plants;
+    // The births and deaths of the animals, shared with the other states of this field.
+    private final Lifecycle lifecycle;
+    // The Zobrist hash of the animals in the field.
+    private long hash;
+    // The number of animals of each species in the field.
+    private final int[] populations = new int[Species.values().length];
+    // The number of animals of each species by region, shared with the other states of this field
+    // and kept up to date by the lifecycle, or null if regions are not counted.
+    private FenwickGrid[] regions;
+    // The number of animals of each species by block at several resolutions, shared with the
+    // other states of this field and kept up to date by the lifecycle, or null.
+    private DensityPyramid pyramid;
 
     /**
      * Represent a field of the given dimensions.
@@ -25,13 +40,61 @@ public class Field {
      * @param width The width of the field.
      */
     public Field(int depth, int width) {
+        this(depth, width, new Plant(depth, width), new Lifecycle());
+    }
+
+    /**
+     * Represent an empty next state of the given field. The new state
+     * shares the plants and the lifecycle of the previous one, and takes
+     * over its region counts and density pyramid, which the lifecycle brings
+     * up to date with each birth, death and move of the step. Once the step
+     * has begun, only the new state may be queried by region or density.
+     *
+     * @param previous The current state of the field.
+     */
+    public Field(Field previous) {
+        this(previous.depth, previous.width, previous.plants, previous.lifecycle);
+        regions = previous.regions;
+        pyramid = previous.pyramid;
+    }
+
+    /**
+     * Return a copy of the field for a branch of the simulation. Every
+     * animal is copied to the same place, in the same order, and tracked by
+     * a lifecycle of the branch's own; the plants are shared chunk by chunk
+     * until either field changes them. The copy counts regions and keeps a
+     * density pyramid if this field does.
+     *
+     * @return The copy.
+     */
+    public Field fork() {
+        Field copy = new Field(depth, width, plants.fork(), new Lifecycle());
+        for (Animal anAnimal : animals) {
+            copy.placeAnimal(anAnimal.copy(), anAnimal.getLocation());
+        }
+        if (regions != null) {
+            copy.enableRegionCounts();
+        }
+        if (pyramid != null) {
+            copy.enableDensityPyramid();
+        }
+        return copy;
+    }
+
+    /**
+     * Represent a field of the given dimensions with the given plants and lifecycle.
+     */
+    private Field(int depth, int width, Plant plants, Lifecycle lifecycle) {
         this.depth = depth;
         this.width = width;
+        this.plants = plants;
+        this.lifecycle = lifecycle;
+        field = new Animal[depth * width];
     }
 
     /**
      * Place an animal at the given location.
-     * If there is already an animal at the location it will
+     * If there is already an animal or a plant at the location it will
      * be lost.
      *
      * @param anAnimal The animal to be placed.
@@ -39,12 +102,173 @@ public class Field {
      */
     public void placeAnimal(Animal anAnimal, Location location) {
         assert location != null;
-        Object other = field.get(location);
+        int index = indexOf(location);
+        Animal other = field[index];
         if (other != null) {
             animals.remove(other);
+            vacate(index);
+            if (other != anAnimal) {
+                other.setDead(DeathCause.OVERCROWDING); // lost from the field
+            }
         }
-        field.put(location, anAnimal);
+        occupy(index, anAnimal);
         animals.add(anAnimal);
+        plants.remove(location);
+        if (!anAnimal.hasLifecycle()) { // a newborn, or an animal of the initial population
+            lifecycle.register(anAnimal);
+        }
+    }
+
+    /**
+     * Carry animals over at their current locations in bulk.
+     * The locations must be distinct and not yet occupied in this field.
+     *
+     * @param restingAnimals The animals to be placed where they already are.
+     */
+    public void placeAll(List<? extends Animal> restingAnimals) {
+        for (Animal anAnimal : restingAnimals) {
+            int index = indexOf(anAnimal.getLocation());
+            assert field[index] == null;
+            occupy(index, anAnimal);
+        }
+        animals.addAll(restingAnimals);
+    }
+
+    /**
+     * Carry animals over at their current locations in bulk, like placeAll,
+     * writing the positions and their hash in parallel. The locations must be
+     * distinct and not yet occupied in this field.
+     *
+     * @param movedAnimals The animals to be placed where they now are.
+     * @param pool         The threads to share the writing between.
+     */
+    public void placeAll(List<? extends Animal> movedAnimals, ForkJoinPool pool) {
+        long placed = pool.submit(() -> movedAnimals.parallelStream().mapToLong(anAnimal -> {
+            int index = indexOf(anAnimal.getLocation());
+            assert field[index] == null;
+            field[index] = anAnimal;
+            return Zobrist.animalKey(index, anAnimal);
+        }).reduce(0, (a, b) -> a ^ b)).join();
+        hash ^= placed;
+        // the populations are shared, so they are kept up to date in one pass
+        for (Animal anAnimal : movedAnimals) {
+            populations[Species.of(anAnimal).ordinal()]++;
+        }
+        animals.addAll(movedAnimals);
+    }
+
+    /**
+     * Reorder the list of animals so that animals near each other in the
+     * field are near each other in the list.
+     *
+     * @param order The sort to reorder them with.
+     */
+    public void sortAnimals(MortonOrder order) {
+        order.sort(animals);
+    }
+
+    /**
+     * Take the animals that died during the step out of the field.
+     */
+    public void removeDead() {
+        animals.removeIf(anAnimal -> {
+            if (anAnimal.isAlive()) {
+                return false;
+            }
+            vacate(indexOf(anAnimal.getLocation()));
+            return true;
+        });
+    }
+
+    /**
+     * Return the number of a species in the field. The count is kept up
+     * to date as the field changes, so it costs nothing to read.
+     *
+     * @param species The species to count.
+     * @return The number of animals, or plants, of that species.
+     */
+    public int getPopulation(Species species) {
+        if (species == Species.PLANT) {
+            return plants.getCount();
+        }
+        return populations[species.ordinal()];
+    }
+
+    /**
+     * Keep the number of each species in every region up to date from now
+     * on, in this state and the states that follow it, so that counting them
+     * over a rectangle takes O(log depth * log width) time instead of a scan.
+     * The counts are built once from the animals in the field and then
+     * changed only by births, deaths and moves.
+     */
+    public void enableRegionCounts() {
+        plants.enableRegionCounts();
+        if (regions == null) {
+            regions = createRegions();
+            for (Animal anAnimal : animals) {
+                Location location = anAnimal.getLocation();
+                regions[Species.of(anAnimal).ordinal()].add(location.row(), location.col(), 1);
+            }
+            lifecycle.setRegionCounts(regions);
+        }
+    }
+
+    /**
+     * Return the number of a species in a rectangle of positions. The bounds
+     * are inclusive and are clipped to the field. Without region counts the
+     * rectangle is scanned.
+     *
+     * @param species The species to count.
+     * @param top     The first row.
+     * @param left    The first column.
+     * @param bottom  The last row.
+     * @param right   The last column.
+     * @return The number of animals, or plants, of that species in the rectangle.
+     */
+    public int countInRegion(Species species, int top, int left, int bottom, int right) {
+        if (species == Species.PLANT) {
+            return plants.countInRegion(top, left, bottom, right);
+        }
+        if (regions != null && regions[species.ordinal()] != null) {
+            return regions[species.ordinal()].sum(top, left, bottom, right);
+        }
+        int count = 0;
+        for (int row = Math.max(top, 0); row <= Math.min(bottom, depth - 1); row++) {
+            for (int col = Math.max(left, 0); col <= Math.min(right, width - 1); col++) {
+                if (animalAt(row, col) == species) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Keep a density pyramid of each species from now on, in this state and
+     * the states that follow it, for drawing the field zoomed out. The pyramid
+     * is built once from the animals in the field and then changed only by
+     * births, deaths and moves.
+     */
+    public void enableDensityPyramid() {
+        plants.enableDensityPyramid();
+        if (pyramid == null) {
+            pyramid = new DensityPyramid(depth, width, Species.values().length);
+            for (Animal anAnimal : animals) {
+                Location location = anAnimal.getLocation();
+                pyramid.add(location.row(), location.col(), Species.of(anAnimal).ordinal(), 1);
+            }
+            lifecycle.setDensityPyramid(pyramid);
+        }
+    }
+
+    /**
+     * Return the density pyramid of the animals, whose kinds are the
+     * ordinals of the species. The plants have a pyramid of their own.
+     *
+     * @return The pyramid, or null if none is kept.
+     */
+    public DensityPyramid getDensityPyramid() {
+        return pyramid;
     }
 
     /**
@@ -54,11 +278,81 @@ public class Field {
      * @return The animal at the given location, or null if there is none.
      */
     public Animal getAnimalAt(Location location) {
-        return field.get(location);
+        return field[indexOf(location)];
+    }
+
+    /**
+     * Return the species of the animal at the given position.
+     *
+     * @param row The row of the position.
+     * @param col The column of the position.
+     * @return The animal's species, or EMPTY if there is no animal.
+     */
+    @Override
+    public Species animalAt(int row, int col) {
+        return Species.of(field[row * width + col]);
+    }
+
+    /**
+     * Check whether a plant grows at the given position.
+     *
+     * @param row The row of the position.
+     * @param col The column of the position.
+     * @return true if there is a plant at the position.
+     */
+    @Override
+    public boolean hasPlantAt(int row, int col) {
+        return plants.isPlantAt(row, col);
+    }
+
+    /**
+     * Copy the code of what is shown at each position, starting from where
+     * the plants grow and then visiting only the animals.
+     *
+     * @param codes The array to fill, with a place for every position.
+     */
+    @Override
+    public void copyCodes(byte[] codes) {
+        plants.copyCodes(codes);
+        for (Animal anAnimal : animals) {
+            Location location = anAnimal.getLocation();
+            codes[location.row() * width + location.col()] = Species.of(anAnimal).code();
+        }
+    }
+
+    /**
+     * Return a 64-bit Zobrist hash of the field: the species and sex of the
+     * animal at each position and where the plants grow. The hash is kept up
+     * to date as the field changes, so it costs nothing to read.
+     *
+     * @return The hash of the state of the field.
+     */
+    public long getStateHash() {
+        return hash ^ plants.getHash();
+    }
+
+    /**
+     * Return the plants growing in the field.
+     *
+     * @return The plant layer.
+     */
+    public Plant getPlants() {
+        return plants;
+    }
+
+    /**
+     * Return the lifecycle of the animals in the field.
+     *
+     * @return The lifecycle.
+     */
+    public Lifecycle getLifecycle() {
+        return lifecycle;
     }
 
     /**
      * Get a shuffled list of the free adjacent locations.
+     * A location is free if it holds no living animal. A plant does not
+     * stand in the way: an animal placed there takes its place.
      *
      * @param location Get locations adjacent to this.
      * @return A list of free adjacent locations.
@@ -67,7 +361,7 @@ public class Field {
         List<Location> free = new LinkedList<>();
         List<Location> adjacent = getAdjacentLocations(location);
         for (Location next : adjacent) {
-            Animal anAnimal = field.get(next);
+            Animal anAnimal = field[indexOf(next)];
             if (anAnimal == null) {
                 free.add(next);
             } else if (!anAnimal.isAlive()) {
@@ -115,8 +409,8 @@ public class Field {
      * Print out the number of foxes and rabbits in the field.
      */
     public void fieldStats() {
-        int numSharks = 0, numTurtles = 0, numIguanas = 0, numPlants = 0, numOrcas = 0, numManatees = 0;
-        for (Animal anAnimal : field.values()) {
+        int numSharks = 0, numTurtles = 0, numIguanas = 0, numOrcas = 0, numManatees = 0;
+        for (Animal anAnimal : animals) {
             if (anAnimal instanceof Shark shark) {
                 if (shark.isAlive()) {
                     numSharks++;
@@ -129,10 +423,6 @@ public class Field {
                 if (iguana.isAlive()) {
                     numIguanas++;
                 }
-            } else if (anAnimal instanceof Plant plant) {
-                if (plant.isAlive()) {
-                    numPlants++;
-                }
             } else if (anAnimal instanceof Orca orca) {
                 if (orca.isAlive()) {
                     numOrcas++;
@@ -143,7 +433,7 @@ public class Field {
                 }
             }
         }
-        System.out.println("Plants: " + numPlants +
+        System.out.println("Plants: " + plants.getCount() +
                 ", Turtles: " + numTurtles +
                 " Iguanas: " + numIguanas +
                 ", Sharks: " + numSharks +
@@ -155,7 +445,22 @@ public class Field {
      * Empty the field.
      */
     public void clear() {
-        field.clear();
+        Arrays.fill(field, null);
+        hash = 0;
+        Arrays.fill(populations, 0);
+        if (regions != null) {
+            for (FenwickGrid counts : regions) {
+                if (counts != null) {
+                    counts.clear();
+                }
+            }
+        }
+        if (pyramid != null) {
+            pyramid.clear();
+        }
+        animals.clear();
+        plants.clear();
+        lifecycle.reset();
     }
 
     /**
@@ -205,6 +510,7 @@ public class Field {
      *
      * @return The depth of the field.
      */
+    @Override
     public int getDepth() {
         return depth;
     }
@@ -214,7 +520,50 @@ public class Field {
      *
      * @return The width of the field.
      */
+    @Override
     public int getWidth() {
         return width;
     }
+
+    /**
+     * Put an animal at a position, keeping the hash and populations up to
+     * date. The region counts and pyramid follow the animal through the
+     * lifecycle.
+     */
+    private void occupy(int index, Animal anAnimal) {
+        field[index] = anAnimal;
+        hash ^= Zobrist.animalKey(index, anAnimal);
+        populations[Species.of(anAnimal).ordinal()]++;
+    }
+
+    /**
+     * Empty a position, keeping the hash and populations up to date.
+     * The region counts and pyramid follow the animal through the lifecycle.
+     */
+    private void vacate(int index) {
+        Animal anAnimal = field[index];
+        field[index] = null;
+        hash ^= Zobrist.animalKey(index, anAnimal);
+        populations[Species.of(anAnimal).ordinal()]--;
+    }
+
+    /**
+     * Create empty region counts for each species of animal.
+     */
+    private FenwickGrid[] createRegions() {
+        FenwickGrid[] counts = new FenwickGrid[Species.values().length];
+        for (Species species : Species.values()) {
+            if (species != Species.EMPTY && species != Species.PLANT) {
+                counts[species.ordinal()] = new FenwickGrid(depth, width);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Return the position of a location in the array of animals.
+     */
+    private int indexOf(Location location) {
+        return location.row() * width + location.col();
+    }
 }
@@ -30,7 +30,7 @@ public class FieldStats {
      *
      * @return A string describing what is in the field.
      */
-    public String getPopulationDetails(Field field) {
+    public String getPopulationDetails(SpeciesGrid field) {
         StringBuilder details = new StringBuilder();
         if (!countsValid) {
             generateCounts(field);
@@ -76,6 +76,16 @@ public class FieldStats {
         count.increment();
     }
 
+    /**
+     * Add to the count for one class of animal.
+     *
+     * @param animalClass The class of animal to count.
+     * @param amount      How many to add.
+     */
+    public void incrementCount(Class<?> animalClass, int amount) {
+        counters.computeIfAbsent(animalClass, k -> new Counter(animalClass.getName())).add(amount);
+    }
+
     /**
      * Indicate that an animal count has been completed.
      */
@@ -101,13 +111,16 @@ public class FieldStats {
      *
      * @param field The field to generate the stats for.
      */
-    private void generateCounts(Field field) {
+    private void generateCounts(SpeciesGrid field) {
         reset();
         for (int row = 0; row < field.getDepth(); row++) {
             for (int col = 0; col < field.getWidth(); col++) {
-                Animal animal = field.getAnimalAt(new Location(row, col));
-                if (animal != null) {
-                    incrementCount(animal.getClass());
+                Species species = field.animalAt(row, col);
+                if (species != Species.EMPTY) {
+                    incrementCount(species.getType());
+                }
+                if (field.hasPlantAt(row, col)) {
+                    incrementCount(Plant.class);
                 }
             }
         }
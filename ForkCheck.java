@@ -0,0 +1,155 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks forks of a running simulation. A simulation is run to the fork step
+ * and branched a number of times, one branch having half its Sharks culled,
+ * and the branches are run alongside each other on a pool of threads and
+ * again one at a time, which must give the same states. Then a branch drawing
+ * the same numbers as its parent is stepped in turn with it on one thread,
+ * and both are compared step by step with a run that never forked.
+ * <pre>
+ *     java ForkCheck [depth width forkStep steps branches]
+ * </pre>
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public class ForkCheck {
+    // The seed the parent's generator is given at the fork.
+    private static final long FORK_SEED = 2024;
+
+    /**
+     * Check forks, by default of a 200 by 200 field at step 200, running
+     * four branches for 200 steps.
+     *
+     * @param args Optionally the depth, width, fork step, steps and number of branches.
+     */
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int width = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int forkStep = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int steps = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+        int branches = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+
+        Simulator parent = runTo(depth, width, forkStep);
+        parent.fork(1).setUpdateMode(UpdateMode.SEQUENTIAL); // warms up the code
+        long started = System.nanoTime();
+        Simulator first = parent.fork(1);
+        long forkNanos = System.nanoTime() - started;
+        started = System.nanoTime();
+        first.simulateOneStep();
+        long stepNanos = System.nanoTime() - started;
+        first.setUpdateMode(UpdateMode.SEQUENTIAL);
+        System.out.printf("forking %d animals at step %d took %.2f ms; the branch's first step took %.2f ms%n",
+                parent.getField().getAnimals().size(), forkStep, forkNanos / 1e6, stepNanos / 1e6);
+
+        // the branches alongside each other, and then one at a time
+        ExecutorService pool = Executors.newFixedThreadPool(branches);
+        List<Future<long[]>> together = new ArrayList<>();
+        for (int b = 0; b < branches; b++) {
+            Simulator branch = whatIf(parent, b);
+            together.add(pool.submit(() -> run(branch, steps)));
+        }
+        boolean same = true;
+        for (int b = 0; b < branches; b++) {
+            long[] concurrent = together.get(b).get();
+            long[] alone = run(whatIf(parent, b), steps);
+            same &= Arrays.equals(concurrent, alone);
+            System.out.printf("  branch %d%s: %s%n", b, b == 0 ? " (half the Sharks culled)" : "",
+                    Arrays.toString(Arrays.copyOf(concurrent, concurrent.length - 1)));
+        }
+        pool.shutdown();
+        System.out.println(same ? branches + " branches run together match the same branches run alone"
+                : "branches run together differ from the same branches run alone");
+
+        // a branch drawing the parent's numbers, stepped in turn with the parent
+        Simulator reference = runTo(depth, width, forkStep);
+        Randomizer.setSeed(FORK_SEED);
+        long[] expected = new long[steps];
+        for (int n = 0; n < steps; n++) {
+            reference.simulateOneStep();
+            expected[n] = reference.getStateHash();
+        }
+        parent = runTo(depth, width, forkStep);
+        Randomizer.setSeed(FORK_SEED);
+        Simulator twin = parent.fork(FORK_SEED);
+        int parentMismatch = -1, twinMismatch = -1;
+        for (int n = 0; n < steps; n++) {
+            parent.simulateOneStep();
+            twin.simulateOneStep();
+            if (parentMismatch < 0 && parent.getStateHash() != expected[n]) {
+                parentMismatch = parent.getStep();
+            }
+            if (twinMismatch < 0 && twin.getStateHash() != expected[n]) {
+                twinMismatch = twin.getStep();
+            }
+        }
+        report("parent after forking", parentMismatch, steps);
+        report("branch with the parent's seed", twinMismatch, steps);
+    }
+
+    /**
+     * Return a headless simulation from the fixed seed, run to the given
+     * step. It uses the two-phase update on one thread, whose mixed
+     * populations last long enough to branch from, and so do its branches.
+     */
+    private static Simulator runTo(int depth, int width, int step) {
+        Randomizer.setSeed(1111);
+        Simulator simulator = new Simulator(depth, width, false);
+        simulator.setUpdateMode(UpdateMode.INTENT_COMMIT, 1);
+        while (simulator.getStep() < step) {
+            simulator.simulateOneStep();
+        }
+        return simulator;
+    }
+
+    /**
+     * Return a branch of the parent with the given seed, having culled every
+     * other Shark from the branch with seed zero.
+     */
+    private static Simulator whatIf(Simulator parent, int seed) {
+        Simulator branch = parent.fork(seed);
+        if (seed == 0) {
+            Field field = branch.getField();
+            boolean cull = false;
+            for (Animal anAnimal : field.getAnimals()) {
+                if (anAnimal instanceof Shark && (cull = !cull)) {
+                    anAnimal.setDead(DeathCause.EATEN);
+                }
+            }
+            field.removeDead();
+        }
+        return branch;
+    }
+
+    /**
+     * Run a branch for the given number of steps and return its populations
+     * followed by its state hash.
+     */
+    private static long[] run(Simulator branch, int steps) {
+        for (int n = 0; n < steps; n++) {
+            branch.simulateOneStep();
+        }
+        long[] result = Arrays.copyOf(branch.getPopulations(), Species.values().length + 1);
+        result[Species.values().length] = branch.getStateHash();
+        branch.setUpdateMode(UpdateMode.SEQUENTIAL); // releases the branch's stepper threads
+        return result;
+    }
+
+    /**
+     * Print whether a run matched the one that never forked.
+     */
+    private static void report(String run, int mismatch, int steps) {
+        if (mismatch < 0) {
+            System.out.println(run + ": all " + steps + " steps match a run that never forked");
+        } else {
+            System.out.println(run + ": differs from a run that never forked from step " + mismatch);
+        }
+    }
+}
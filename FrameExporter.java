@@ -0,0 +1,536 @@
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exports a run as images, drawn in the colors of the SimulatorView but
+ * without a window, as a directory of PNG images or an animated GIF.
+ * <p>
+ * The simulation's thread only copies the species at each position into a
+ * buffer and hands it on; a pool of workers turns the buffers into images and
+ * encodes them, and a writer saves the frames in the order they were handed
+ * on. Only a fixed number of buffers exist, so if the workers fall behind the
+ * simulation waits for one to be free rather than frames piling up in memory.
+ * A GIF is a single stream, so its frames are drawn by the workers but
+ * compressed one after another by the writer.
+ * <pre>
+ *     java FrameExporter png|gif output steps [depth width seed] [--every n] [--scale n] [--fps n] [--workers n]
+ *     java FrameExporter png|gif output --from log-file [--every n] [--scale n] [--fps n] [--workers n]
+ * </pre>
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public class FrameExporter implements Closeable {
+    // The largest width and height, in pixels, of the images drawn by default.
+    private static final int MAX_IMAGE_WIDTH = 1200, MAX_IMAGE_HEIGHT = 800;
+    // The largest size of a position drawn by default, in pixels.
+    private static final int MAX_SCALE = 6;
+    // The size of field simulated by default, as the simulator's.
+    private static final int DEFAULT_DEPTH = 85, DEFAULT_WIDTH = 130;
+
+    // The kind of file written.
+    private final ExportFormat format;
+    // The directory of PNG images or the GIF file.
+    private final File output;
+    // The dimensions of the field.
+    private final int depth, width;
+    // The size of a position in the images, in pixels.
+    private final int scale;
+    // The time each frame of a GIF is shown for, in hundredths of a second.
+    private final int delay;
+    // The colors of the images, indexed by species code.
+    private final IndexColorModel palette;
+    // The buffers free to copy a frame into.
+    private final BlockingQueue<byte[]> freeBuffers;
+    // The number of buffers made so far, up to the number allowed.
+    private final AtomicInteger buffersMade = new AtomicInteger();
+    private final int bufferCount;
+    // Draws and encodes the frames.
+    private final ExecutorService workers;
+    // The frames handed on, in order, for the writer; an empty frame ends the stream.
+    private final BlockingQueue<CompletableFuture<Frame>> pending;
+    // Saves the frames in order.
+    private final Thread writer;
+    // The first failure of the workers or writer, reported to the simulation's thread.
+    private volatile Throwable failure;
+    // The processor time the simulation's thread has spent exporting, and
+    // the time it has spent waiting for a free buffer.
+    private long exportNanos, waitNanos;
+    // The number of frames saved.
+    private volatile int framesWritten;
+
+    /**
+     * A frame drawn, and for PNG encoded, by a worker.
+     */
+    private record Frame(int step, BufferedImage image, byte[] encoded) {
+    }
+
+    /**
+     * Create an exporter with a scale fitting the images to the size of the
+     * view, at 10 frames per second, with a worker for each processor.
+     *
+     * @param format The kind of file to write.
+     * @param output The directory for PNG images, or the GIF file.
+     * @param depth  The depth of the field.
+     * @param width  The width of the field.
+     * @throws IOException If the output cannot be created.
+     */
+    public FrameExporter(ExportFormat format, String output, int depth, int width) throws IOException {
+        this(format, output, depth, width, defaultScale(depth, width), 10,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create an exporter.
+     *
+     * @param format          The kind of file to write.
+     * @param output          The directory for PNG images, or the GIF file.
+     * @param depth           The depth of the field.
+     * @param width           The width of the field.
+     * @param scale           The size of a position in the images, in pixels.
+     * @param framesPerSecond The speed a GIF plays at.
+     * @param workerCount     The number of threads drawing and encoding frames.
+     * @throws IOException If the output cannot be created.
+     */
+    public FrameExporter(ExportFormat format, String output, int depth, int width, int scale,
+                         int framesPerSecond, int workerCount) throws IOException {
+        this.format = format;
+        this.output = new File(output);
+        this.depth = depth;
+        this.width = width;
+        this.scale = scale;
+        delay = Math.max(1, Math.round(100f / framesPerSecond));
+        if (format == ExportFormat.PNG && !this.output.isDirectory() && !this.output.mkdirs()) {
+            throw new IOException("cannot create " + output);
+        }
+        palette = createPalette();
+        bufferCount = 2 * workerCount + 2;
+        freeBuffers = new ArrayBlockingQueue<>(bufferCount);
+        pending = new ArrayBlockingQueue<>(bufferCount + 1);
+        AtomicInteger workerNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, task -> {
+            Thread thread = new Thread(task, "frame-export-" + workerNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (format == ExportFormat.GIF) {
+            Files.deleteIfExists(this.output.toPath()); // the stream writes over a file without shortening it
+        }
+        ImageOutputStream gif = format == ExportFormat.GIF ? ImageIO.createImageOutputStream(this.output) : null;
+        if (format == ExportFormat.GIF && gif == null) {
+            throw new IOException("cannot create " + output);
+        }
+        writer = new Thread(() -> writeFrames(gif), "frame-writer");
+        writer.start();
+    }
+
+    /**
+     * Hand on how the field looks at a step, to be saved as the next frame.
+     * This returns as soon as the field is copied, unless every buffer is in use.
+     *
+     * @param step  The step shown.
+     * @param field The field at that step.
+     * @throws IOException If an earlier frame could not be drawn or saved.
+     */
+    public void export(int step, SpeciesGrid field) throws IOException {
+        long start = cpuTime();
+        checkFailure();
+        byte[] cells = freeBuffers.poll();
+        if (cells == null) {
+            if (buffersMade.get() < bufferCount) {
+                buffersMade.incrementAndGet();
+                cells = new byte[depth * width];
+            } else {
+                long waitStart = System.nanoTime();
+                cells = take(freeBuffers);
+                waitNanos += System.nanoTime() - waitStart;
+            }
+        }
+        field.copyCodes(cells);
+        byte[] frameCells = cells;
+        CompletableFuture<Frame> frame = CompletableFuture.supplyAsync(() -> draw(step, frameCells), workers);
+        try {
+            pending.put(frame);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while exporting step " + step, e);
+        }
+        exportNanos += cpuTime() - start;
+    }
+
+    /**
+     * Wait for every frame handed on to be saved, then finish the output.
+     *
+     * @throws IOException If a frame could not be drawn or saved.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            pending.put(CompletableFuture.completedFuture(null));
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writer.interrupt();
+        } finally {
+            workers.shutdown();
+        }
+        checkFailure();
+    }
+
+    /**
+     * @return The processor time the calling thread has spent in export, in nanoseconds.
+     */
+    public long getExportNanos() {
+        return exportNanos;
+    }
+
+    /**
+     * @return The part of the export time spent waiting for the workers to free a buffer.
+     */
+    public long getWaitNanos() {
+        return waitNanos;
+    }
+
+    /**
+     * @return The number of frames saved so far.
+     */
+    public int getFramesWritten() {
+        return framesWritten;
+    }
+
+    /**
+     * Export a run, either simulated headless or played from an event log.
+     *
+     * @param args As in the usage above.
+     * @throws IOException If the frames cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: java FrameExporter png|gif output steps [depth width seed] "
+                    + "[--every n] [--scale n] [--fps n] [--workers n]");
+            System.out.println("       java FrameExporter png|gif output --from log-file "
+                    + "[--every n] [--scale n] [--fps n] [--workers n]");
+            return;
+        }
+        ExportFormat format = ExportFormat.valueOf(args[0].toUpperCase(Locale.ROOT));
+        String output = args[1];
+        String from = null;
+        int steps = 0;
+        int every = 1, scale = 0, framesPerSecond = 10;
+        int workerCount = Runtime.getRuntime().availableProcessors();
+        int[] size = {DEFAULT_DEPTH, DEFAULT_WIDTH};
+        int positional = 0;
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--from" -> from = args[++i];
+                case "--every" -> every = Integer.parseInt(args[++i]);
+                case "--scale" -> scale = Integer.parseInt(args[++i]);
+                case "--fps" -> framesPerSecond = Integer.parseInt(args[++i]);
+                case "--workers" -> workerCount = Integer.parseInt(args[++i]);
+                default -> {
+                    switch (positional++) {
+                        case 0 -> steps = Integer.parseInt(args[i]);
+                        case 1, 2 -> size[positional - 2] = Integer.parseInt(args[i]);
+                        case 3 -> Randomizer.setSeed(Long.parseLong(args[i]));
+                        default -> throw new IllegalArgumentException("unexpected argument " + args[i]);
+                    }
+                }
+            }
+        }
+
+        long started = System.nanoTime();
+        long startedCpu = cpuTime();
+        FrameExporter exporter;
+        if (from != null) {
+            try (EventLogReader frames = new EventLogReader(from)) {
+                exporter = create(format, output, frames.getDepth(), frames.getWidth(), scale, framesPerSecond,
+                        workerCount);
+                try (exporter) {
+                    while (frames.next()) {
+                        if (frames.getStep() % every == 0) {
+                            exporter.export(frames.getStep(), frames);
+                        }
+                    }
+                }
+            }
+        } else {
+            Simulator simulator = new Simulator(size[0], size[1], false);
+            Field field = simulator.getField();
+            exporter = create(format, output, field.getDepth(), field.getWidth(), scale, framesPerSecond,
+                    workerCount);
+            try (exporter) {
+                exporter.export(simulator.getStep(), simulator.getField());
+                for (int n = 0; n < steps; n++) {
+                    simulator.simulateOneStep();
+                    if (simulator.getStep() % every == 0) {
+                        exporter.export(simulator.getStep(), simulator.getField());
+                    }
+                }
+            }
+        }
+        long total = System.nanoTime() - started;
+        long totalCpu = cpuTime() - startedCpu;
+        System.out.printf("%d frames in %d ms; the simulation's thread spent %d of its %d ms of processor time "
+                        + "exporting (%.1f%%) and waited %d ms for workers%n", exporter.getFramesWritten(),
+                total / 1_000_000, exporter.getExportNanos() / 1_000_000, totalCpu / 1_000_000,
+                100.0 * exporter.getExportNanos() / totalCpu, exporter.getWaitNanos() / 1_000_000);
+    }
+
+    /**
+     * Create an exporter, choosing the scale if it is not given.
+     */
+    private static FrameExporter create(ExportFormat format, String output, int depth, int width, int scale,
+                                        int framesPerSecond, int workerCount) throws IOException {
+        return new FrameExporter(format, output, depth, width, scale > 0 ? scale : defaultScale(depth, width),
+                framesPerSecond, workerCount);
+    }
+
+    /**
+     * Return the largest scale, up to MAX_SCALE, at which the images fit the default size.
+     */
+    private static int defaultScale(int depth, int width) {
+        return Math.max(1, Math.min(MAX_SCALE, Math.min(MAX_IMAGE_WIDTH / width, MAX_IMAGE_HEIGHT / depth)));
+    }
+
+    /**
+     * Return the view's colors indexed by species code.
+     */
+    private static IndexColorModel createPalette() {
+        Map<Class<?>, Color> colors = SimulatorView.defaultColors();
+        Species[] species = Species.values();
+        // a GIF's color table has a power of two entries
+        int size = Integer.highestOneBit(species.length - 1) << 1;
+        byte[] red = new byte[size], green = new byte[size], blue = new byte[size];
+        for (Species kind : species) {
+            Color color = kind == Species.EMPTY ? SimulatorView.EMPTY_COLOR
+                    : colors.getOrDefault(kind.getType(), SimulatorView.UNKNOWN_COLOR);
+            red[kind.code()] = (byte) color.getRed();
+            green[kind.code()] = (byte) color.getGreen();
+            blue[kind.code()] = (byte) color.getBlue();
+        }
+        return new IndexColorModel(8, size, red, green, blue);
+    }
+
+    /**
+     * Draw a frame from the species at each position, and encode it if it is
+     * saved as a PNG. The buffer is freed once it has been drawn.
+     */
+    private Frame draw(int step, byte[] cells) {
+        BufferedImage image = new BufferedImage(width * scale, depth * scale, BufferedImage.TYPE_BYTE_INDEXED,
+                palette);
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int imageWidth = width * scale;
+        try {
+            for (int row = 0; row < depth; row++) {
+                int line = row * scale * imageWidth;
+                if (scale == 1) {
+                    System.arraycopy(cells, row * width, pixels, line, width);
+                } else {
+                    for (int col = 0; col < width; col++) {
+                        Arrays.fill(pixels, line + col * scale, line + (col + 1) * scale, cells[row * width + col]);
+                    }
+                    for (int copy = 1; copy < scale; copy++) {
+                        System.arraycopy(pixels, line, pixels, line + copy * imageWidth, imageWidth);
+                    }
+                }
+            }
+        } finally {
+            freeBuffers.add(cells);
+        }
+        if (format == ExportFormat.GIF) {
+            return new Frame(step, image, null);
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", png);
+        } catch (IOException e) {
+            throw new IllegalStateException("could not encode step " + step, e);
+        }
+        return new Frame(step, null, png.toByteArray());
+    }
+
+    /**
+     * Save the frames in the order they were handed on until the stream ends.
+     * After a failure the remaining frames are still taken, but not saved,
+     * so that the simulation's thread is never left waiting.
+     */
+    private void writeFrames(ImageOutputStream gif) {
+        ImageWriter gifWriter = null;
+        try {
+            if (gif != null) {
+                gifWriter = ImageIO.getImageWritersByFormatName("gif").next();
+                gifWriter.setOutput(gif);
+                gifWriter.prepareWriteSequence(null);
+            }
+            while (true) {
+                Frame frame;
+                try {
+                    frame = pending.take().get();
+                } catch (ExecutionException e) {
+                    fail(e.getCause());
+                    continue;
+                }
+                if (frame == null) {
+                    break;
+                }
+                if (failure == null) {
+                    save(gifWriter, frame);
+                }
+            }
+            if (gifWriter != null && failure == null) {
+                gifWriter.endWriteSequence();
+            }
+        } catch (InterruptedException e) {
+            fail(e);
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        } finally {
+            if (gifWriter != null) {
+                gifWriter.dispose();
+            }
+            if (gif != null) {
+                try {
+                    gif.close();
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Save a frame, as the next image of the GIF or as a PNG file named by its step.
+     */
+    private void save(ImageWriter gifWriter, Frame frame) {
+        try {
+            if (gifWriter != null) {
+                gifWriter.writeToSequence(new IIOImage(frame.image(), null,
+                        gifMetadata(gifWriter, frame.image(), framesWritten == 0)), null);
+            } else {
+                Files.write(new File(output, String.format("frame-%06d.png", frame.step())).toPath(),
+                        frame.encoded());
+            }
+            framesWritten++;
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Note a failure, keeping the first.
+     */
+    private void fail(Throwable cause) {
+        if (failure == null) {
+            failure = cause;
+        }
+    }
+
+    /**
+     * Return the metadata of a GIF frame: drawn in the view's colors, shown
+     * for the delay and replaced whole by the next, the first also asking
+     * players to loop forever.
+     */
+    private IIOMetadata gifMetadata(ImageWriter gifWriter, BufferedImage image, boolean first) throws IOException {
+        IIOMetadata metadata = gifWriter.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image),
+                null);
+        String formatName = metadata.getNativeMetadataFormatName();
+        IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(formatName);
+        IIOMetadataNode control = child(root, "GraphicControlExtension");
+        control.setAttribute("disposalMethod", "none");
+        control.setAttribute("userInputFlag", "FALSE");
+        control.setAttribute("transparentColorFlag", "FALSE");
+        control.setAttribute("delayTime", Integer.toString(delay));
+        control.setAttribute("transparentColorIndex", "0");
+        IIOMetadataNode table = child(root, "LocalColorTable");
+        while (table.hasChildNodes()) {
+            table.removeChild(table.getFirstChild());
+        }
+        table.setAttribute("sizeOfLocalColorTable", Integer.toString(palette.getMapSize()));
+        table.setAttribute("sortFlag", "FALSE");
+        for (int i = 0; i < palette.getMapSize(); i++) {
+            IIOMetadataNode entry = new IIOMetadataNode("ColorTableEntry");
+            entry.setAttribute("index", Integer.toString(i));
+            entry.setAttribute("red", Integer.toString(palette.getRed(i)));
+            entry.setAttribute("green", Integer.toString(palette.getGreen(i)));
+            entry.setAttribute("blue", Integer.toString(palette.getBlue(i)));
+            table.appendChild(entry);
+        }
+        if (first) {
+            IIOMetadataNode loop = new IIOMetadataNode("ApplicationExtension");
+            loop.setAttribute("applicationID", "NETSCAPE");
+            loop.setAttribute("authenticationCode", "2.0");
+            loop.setUserObject(new byte[]{1, 0, 0}); // loop forever
+            child(root, "ApplicationExtensions").appendChild(loop);
+        }
+        metadata.setFromTree(formatName, root);
+        return metadata;
+    }
+
+    /**
+     * Return the child of a metadata node with the given name, adding it if there is none.
+     */
+    private static IIOMetadataNode child(IIOMetadataNode parent, String name) {
+        for (int i = 0; i < parent.getLength(); i++) {
+            if (parent.item(i).getNodeName().equals(name)) {
+                return (IIOMetadataNode) parent.item(i);
+            }
+        }
+        IIOMetadataNode node = new IIOMetadataNode(name);
+        parent.appendChild(node);
+        return node;
+    }
+
+    /**
+     * Take a free buffer, waiting for one if necessary.
+     */
+    private static byte[] take(BlockingQueue<byte[]> buffers) throws IOException {
+        try {
+            return buffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for a frame buffer", e);
+        }
+    }
+
+    /**
+     * Return the processor time used by the calling thread.
+     */
+    private static long cpuTime() {
+        return ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+    }
+
+    /**
+     * Throw the first failure of the workers or writer, if there has been one.
+     */
+    private void checkFailure() throws IOException {
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new IOException("could not export frames", cause);
+        }
+    }
+}
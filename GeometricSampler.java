@@ -0,0 +1,56 @@
+import java.util.Random;
+
+/**
+ * Picks which of a long run of independent trials succeed, when each succeeds
+ * with the same small chance. Rather than rolling for every trial, the sampler
+ * draws the number of failures before the next success from the geometric
+ * distribution, so the cost is in proportion to the number of successes
+ * rather than the number of trials, and each trial still succeeds with the
+ * given chance independently of the others.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public class GeometricSampler {
+    // The chance that a trial succeeds.
+    private final double probability;
+    // The logarithm of the chance that a trial fails.
+    private final double logFailure;
+
+    /**
+     * Create a sampler for trials with the given chance of success.
+     *
+     * @param probability The chance that a trial succeeds, from 0 to 1.
+     */
+    public GeometricSampler(double probability) {
+        if (!(probability >= 0 && probability <= 1)) {
+            throw new IllegalArgumentException("not a probability: " + probability);
+        }
+        this.probability = probability;
+        logFailure = Math.log1p(-probability);
+    }
+
+    /**
+     * Return the number of trials that fail before the next success.
+     *
+     * @param rand The generator to draw from.
+     * @return The number of failures, Long.MAX_VALUE if no trial can succeed.
+     */
+    public long nextGap(Random rand) {
+        if (probability >= 1) {
+            return 0;
+        }
+        if (probability <= 0) {
+            return Long.MAX_VALUE;
+        }
+        // the chance of at least k failures is (1 - p)^k, as it should be
+        return (long) Math.floor(Math.log(1 - rand.nextDouble()) / logFailure);
+    }
+
+    /**
+     * @return The chance that a trial succeeds.
+     */
+    public double getProbability() {
+        return probability;
+    }
+}
@@ -32,6 +32,22 @@ public class Iguana extends Prey {
         }
     }
 
+    /**
+     * Iguanas stay active at night, when they breed.
+     */
+    @Override
+    protected boolean isDormant(int currentTime, boolean isSunny) {
+        return false;
+    }
+
+    /**
+     * Iguanas can only breed in the cold waters of the night.
+     */
+    @Override
+    protected boolean breedsAt(int currentTime) {
+        return !validTime(currentTime);
+    }
+
     /**
      * Defines the iguana's behaviour: aging, eating plants, breeding and moving.
      * The iguana can still move and eat at any time but does not breed during the day due to warmer waters.
@@ -41,14 +57,13 @@ public class Iguana extends Prey {
      * @param currentTime    The current time of the environment.
      */
     public void act(Field currentField, Field nextFieldState, int currentTime, boolean isSunny) {
-        incrementAge();
         incrementHunger();
         if (isAlive()) {
             List<Location> freeLocations =
                     nextFieldState.getFreeAdjacentLocations(getLocation());
             List<Location> adjacentLocations =
                     nextFieldState.getAdjacentLocations(getLocation());
-            if (!validTime(currentTime) && !freeLocations.isEmpty()) { // can only breed in cold waters
+            if (breedsAt(currentTime) && !freeLocations.isEmpty()) {
                 giveBirth(nextFieldState, freeLocations, adjacentLocations);
             }
             // Try to move into a free location.
@@ -63,20 +78,46 @@ public class Iguana extends Prey {
                 nextFieldState.placeAnimal(this, nextLocation);
             } else {
                 // Overcrowding.
-                setDead();
+                setDead(DeathCause.OVERCROWDING);
             }
         }
     }
 
+    /**
+     * Turn a dead Iguana into a newborn, as created by the constructor.
+     *
+     * @param location The location within the field.
+     */
+    @Override
+    protected void reborn(Location location) {
+        reset(location, 50);
+    }
+
     @Override
     public String toString() {
         return "Iguana{" +
-                "age=" + age +
+                "age=" + getAge() +
                 ", alive=" + isAlive() +
                 ", location=" + getLocation() +
                 '}';
     }
 
+    /**
+     * Create a newborn Iguana, reusing a dead one if there is one free.
+     *
+     * @param nextFieldState The updated field.
+     * @param location       The newborn's location.
+     * @return The newborn.
+     */
+    @Override
+    protected Iguana newborn(Field nextFieldState, Location location) {
+        Iguana young = nextFieldState.getLifecycle().reuse(Iguana.class, location);
+        if (young == null) {
+            young = new Iguana(false, location);
+        }
+        return young;
+    }
+
     /**
      * Check whether this Iguana is to give birth at this step.
      * New births will be made into free adjacent locations.
@@ -103,8 +144,7 @@ public class Iguana extends Prey {
             // based on number of males in vicinity or max number of births
             for (int b = 0; b < maleCount && b < MAX_LITTER_SIZE && !freeLocations.isEmpty(); b++) {
                 Location loc = freeLocations.remove(0);
-                Iguana young = new Iguana(false, loc);
-                nextFieldState.placeAnimal(young, loc);
+                nextFieldState.placeAnimal(newborn(nextFieldState, loc), loc);
             }
         }
     }
@@ -0,0 +1,522 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Steps the animals in two phases so that the work can be shared between
+ * threads. In the intent phase every animal decides, against the current
+ * field alone, whether it rests, which prey or plant it would eat, where it
+ * could move and how many young it could have. The claims on positions are
+ * then resolved in rounds: each claimant claims its most wanted position that
+ * is still untaken, and the claim with the highest priority wins it. Losers
+ * try their next choice in the following round. Predators claim their prey in
+ * a round of their own first, so that eaten prey make no claims. A hunter that
+ * is itself taken in that round does not eat, and its prey acts as usual.
+ * Finally the commit phase applies the outcome and writes the next field.
+ * <p>
+ * The random choices are derived by hashing a seed drawn once per step with
+ * the position of each animal, and the priorities are hashes too, so the
+ * outcome does not depend on the order the animals are visited in or on the
+ * number of threads. It differs from the sequential update, where whichever
+ * animal acts first wins. Only positions that hold no animal in the current
+ * field can be moved into, and an animal that moves onto a plant takes its
+ * place, as it does sequentially. An animal that loses every claim stays where it is;
+ * one with nowhere at all to go dies of overcrowding, as it does sequentially.
+ * Deaths, births and the plant layer are recorded in a short pass in a fixed
+ * order, since the lifecycle and the plants are not shared between threads.
+ *
+ * @author Krish Shah
+ * @version 1.1
+ */
+public class IntentCommitStepper {
+    // For the seed of each step.
+    private static final Random rand = Randomizer.getRandom();
+    // The offsets of the eight neighbours of a position.
+    private static final int[] ROW_OFFSETS = {-1, -1, -1, 0, 0, 1, 1, 1};
+    private static final int[] COL_OFFSETS = {-1, 0, 1, -1, 1, -1, 0, 1};
+    // The most positions an animal can want: food and the free neighbours.
+    private static final int MAX_CANDIDATES = 9;
+    // What each animal does in the step.
+    private static final byte GONE = 0, STARVING = 1, DORMANT = 2, ACTIVE = 3, EATEN = 4;
+
+    // The threads the phases are shared between.
+    private final ForkJoinPool pool;
+
+    // Scratch space for a step, by animal: what it does, its wanted positions
+    // (food first), how many of them there are and are food, whether it hunts,
+    // and how many young it has.
+    private byte[] states = new byte[0];
+    private int[] candidates = new int[0];
+    private byte[] candidateCounts = new byte[0];
+    private byte[] foodCounts = new byte[0];
+    private boolean[] hunting = new boolean[0];
+    private boolean[] breeding = new boolean[0];
+    private int[] litters = new int[0];
+    // By claimant, the animals first and then their young: the parent of each
+    // young, the next choice to try, the position claimed in the current round
+    // and the position won, or -1.
+    private int[] parents = new int[0];
+    private int[] choices = new int[0];
+    private int[] claimed = new int[0];
+    private int[] won = new int[0];
+    // By position: the best claim so far, and the claimant holding it plus one.
+    private AtomicLongArray best = new AtomicLongArray(0);
+    private int[] taken = new int[0];
+    // By animal, the position it starts the step at.
+    private int[] origins = new int[0];
+    // By animal, the hunter that won it in the hunting round plus one.
+    private int[] hunters = new int[0];
+    // By claimant, its claim: a hash in the high bits and the claimant in the low bits.
+    private long[] priorities = new long[0];
+    // By position: the animal at it in the current field plus one.
+    private int[] animalAt = new int[0];
+
+    /**
+     * Create a stepper sharing its work between the given number of threads.
+     *
+     * @param threads The number of threads, at least one.
+     */
+    public IntentCommitStepper(int threads) {
+        pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Let the threads of the stepper finish once they are idle. The stepper
+     * cannot be used afterwards.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * @return The number of threads the stepper shares its work between.
+     */
+    public int getThreads() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Move every animal of the current field on by one step into the next field.
+     *
+     * @param field     The current field, which is only read.
+     * @param next      The empty next state of the field.
+     * @param time      The current time of the environment.
+     * @param isSunny   The weather condition.
+     */
+    public void step(Field field, Field next, int time, boolean isSunny) {
+        List<Animal> animals = field.getAnimals();
+        int n = animals.size();
+        int width = field.getWidth();
+        int cells = field.getDepth() * width;
+        prepare(n, cells);
+        long seed = rand.nextLong();
+        for (int i = 0; i < n; i++) {
+            origins[i] = indexOf(animals.get(i).getLocation(), width);
+            animalAt[origins[i]] = i + 1;
+        }
+
+        // Intents, against the current field only.
+        parallel(n, i -> intend(i, animals.get(i), field, time, isSunny, seed));
+
+        // Every young is a claimant of its own, after the animals.
+        int total = n;
+        for (int i = 0; i < n; i++) {
+            total += litters[i];
+        }
+        growClaimants(total);
+        int k = n;
+        for (int i = 0; i < n; i++) {
+            parents[i] = i;
+            choices[i] = 0;
+            priorities[i] = priority(i, (long) origins[i] * 16, seed);
+            for (int young = 0; young < litters[i]; young++) {
+                parents[k] = i;
+                choices[k] = foodCounts[i]; // the young only want free positions
+                priorities[k] = priority(k, (long) origins[i] * 16 + 1 + young, seed);
+                k++;
+            }
+        }
+        for (k = 0; k < total; k++) {
+            won[k] = -1;
+        }
+
+        // Predators claim their prey first; the prey they win are eaten.
+        int claimants = total;
+        parallel(claimants, c -> claimed[c] = c < n && hunting[c] ? claim(c) : -1);
+        parallel(claimants, c -> resolve(c));
+        settleHunts(n);
+        // Then everyone else, round after round, until no claims are left.
+        while (map(claimants, c -> claimed[c] = claim(c)) > 0) {
+            parallel(claimants, c -> resolve(c));
+        }
+
+        commit(animals, field, next, claimants, seed);
+
+        // Clear the positions touched, ready for the next step.
+        for (int c = 0; c < claimants; c++) {
+            if (won[c] >= 0) {
+                best.set(won[c], 0);
+                taken[won[c]] = 0;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            animalAt[origins[i]] = 0;
+        }
+    }
+
+    /**
+     * Work out what an animal intends to do, touching nothing but its own state.
+     */
+    private void intend(int i, Animal anAnimal, Field field, int time, boolean isSunny, long seed) {
+        hunting[i] = false;
+        breeding[i] = false;
+        litters[i] = 0;
+        candidateCounts[i] = 0;
+        foodCounts[i] = 0;
+        if (!anAnimal.isAlive() || !(anAnimal instanceof Consumer consumer)) {
+            states[i] = GONE;
+            return;
+        }
+        consumer.foodLevel--;
+        if (consumer.foodLevel <= 0) {
+            states[i] = STARVING;
+            return;
+        }
+        if (consumer.isDormant(time, isSunny)) {
+            states[i] = DORMANT;
+            return;
+        }
+        states[i] = ACTIVE;
+
+        int width = field.getWidth();
+        int cell = indexOf(consumer.getLocation(), width);
+        int[] neighbours = neighbours(cell, field, seed);
+        int base = i * MAX_CANDIDATES;
+        int count = 0;
+        // food first: the first live prey, or the first plant
+        for (int neighbour : neighbours) {
+            if (neighbour < 0) {
+                break;
+            }
+            Animal other = field.getAnimalAt(locationOf(neighbour, width));
+            if (consumer instanceof Predator predator) {
+                if (other != null && other.isAlive() && predator.foodValue(other) > 0) {
+                    candidates[base + count++] = neighbour;
+                    hunting[i] = true;
+                    break;
+                }
+            } else if (field.hasPlantAt(neighbour / width, neighbour % width)) {
+                candidates[base + count++] = neighbour;
+                break;
+            }
+        }
+        foodCounts[i] = (byte) count;
+        // then the free positions, holding no living animal; a plant there is trampled
+        int males = 0;
+        for (int neighbour : neighbours) {
+            if (neighbour < 0) {
+                break;
+            }
+            Animal other = field.getAnimalAt(locationOf(neighbour, width));
+            if (other == null || !other.isAlive()) {
+                candidates[base + count++] = neighbour;
+            } else if (other != null && other.getClass() == consumer.getClass() && other.isMale() && other.isAlive()) {
+                males++;
+            }
+        }
+        candidateCounts[i] = (byte) count;
+        int free = count - foodCounts[i];
+        if (free > 0 && !consumer.isMale() && consumer.canBreed() && consumer.breedsAt(time)) {
+            breeding[i] = true;
+            litters[i] = Math.min(Math.min(males, consumer.MAX_LITTER_SIZE), free);
+        }
+    }
+
+    /**
+     * Mark the prey won in the hunting round as eaten, except that a hunter
+     * taken by another does not eat. Its hunt is dropped, so its prey makes
+     * claims in the following rounds like any other animal. The hunts won
+     * form chains, each hunter taking the next, and rings; every other hunt
+     * along a chain stands, starting from the hunter that nobody takes, and
+     * around a ring, starting from the hunter with the highest claim.
+     */
+    private void settleHunts(int n) {
+        for (int i = 0; i < n; i++) {
+            hunters[i] = 0;
+        }
+        for (int i = 0; i < n; i++) {
+            if (hunting[i] && won[i] >= 0) {
+                hunters[animalAt[won[i]] - 1] = i + 1;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (hunting[i] && won[i] >= 0 && hunters[i] == 0) {
+                settleFrom(i);
+            }
+        }
+        // the hunts left unsettled go round in rings
+        for (int i = 0; i < n; i++) {
+            if (hunting[i] && won[i] >= 0 && states[animalAt[won[i]] - 1] != EATEN) {
+                int first = i;
+                for (int hunter = animalAt[won[i]] - 1; hunter != i; hunter = animalAt[won[hunter]] - 1) {
+                    if (priorities[hunter] > priorities[first]) {
+                        first = hunter;
+                    }
+                }
+                settleFrom(first);
+            }
+        }
+    }
+
+    /**
+     * Settle the hunts from a hunter that is not eaten along the hunters it
+     * leads to, letting every hunter that is not eaten eat, except one whose
+     * prey would be the first hunter.
+     */
+    private void settleFrom(int first) {
+        int hunter = first;
+        boolean eaten = false;
+        do {
+            int cell = won[hunter];
+            int prey = animalAt[cell] - 1;
+            if (eaten || prey == first) {
+                // the hunter goes without, and tries the positions after its prey
+                won[hunter] = -1;
+                choices[hunter]++;
+                best.set(cell, 0);
+                taken[cell] = 0;
+                eaten = false;
+            } else {
+                states[prey] = EATEN;
+                eaten = true;
+            }
+            hunter = prey;
+        } while (hunting[hunter] && won[hunter] >= 0 && hunter != first);
+    }
+
+    /**
+     * Claim the claimant's most wanted position that is still untaken.
+     *
+     * @return The position claimed, or -1.
+     */
+    private int claim(int c) {
+        int parent = parents[c];
+        if (won[c] >= 0 || states[parent] != ACTIVE) {
+            return -1;
+        }
+        int base = parent * MAX_CANDIDATES;
+        int end = candidateCounts[parent];
+        int choice = choices[c];
+        while (choice < end && taken[candidates[base + choice]] != 0) {
+            choice++;
+        }
+        choices[c] = choice;
+        if (choice >= end) {
+            return -1;
+        }
+        int cell = candidates[base + choice];
+        best.accumulateAndGet(cell, priorities[c], Math::max);
+        return cell;
+    }
+
+    /**
+     * Settle a claim: the claimant wins the position if its claim is the best,
+     * and otherwise moves on to its next choice.
+     */
+    private void resolve(int c) {
+        int cell = claimed[c];
+        if (cell < 0) {
+            return;
+        }
+        if (best.get(cell) == priorities[c]) {
+            won[c] = cell;
+            taken[cell] = c + 1;
+        } else {
+            choices[c]++;
+        }
+    }
+
+    /**
+     * Return the claim of a claimant: a hash of the seed and the claimant's key
+     * in the high bits, and the claimant itself in the low bits to break ties.
+     */
+    private static long priority(int c, long key, long seed) {
+        return (Zobrist.mix(seed + key * Zobrist.GOLDEN_GAMMA) >>> 33) << 31 | c;
+    }
+
+    /**
+     * Apply the outcome of the step: deaths, meals, moves, mating and births,
+     * then write every animal into the next field.
+     */
+    private void commit(List<Animal> animals, Field field, Field next, int claimants, long seed) {
+        int width = field.getWidth();
+        Plant plants = field.getPlants();
+        List<Animal> survivors = new ArrayList<>();
+        for (int i = 0; i < animals.size(); i++) {
+            Animal anAnimal = animals.get(i);
+            switch (states[i]) {
+                case STARVING -> anAnimal.setDead(DeathCause.STARVATION);
+                case EATEN -> anAnimal.setDead(DeathCause.EATEN);
+                case DORMANT -> survivors.add(anAnimal);
+                case ACTIVE -> {
+                    Consumer consumer = (Consumer) anAnimal;
+                    if (candidateCounts[i] == 0) {
+                        consumer.setDead(DeathCause.OVERCROWDING); // nowhere to go
+                        continue;
+                    }
+                    int cell = won[i];
+                    if (cell >= 0) {
+                        Location location = locationOf(cell, width);
+                        if (foodCounts[i] > 0 && cell == candidates[i * MAX_CANDIDATES]) {
+                            if (consumer instanceof Predator predator) {
+                                consumer.foodLevel = predator.foodValue(field.getAnimalAt(location));
+                            } else if (consumer instanceof Prey prey) {
+                                consumer.foodLevel = plants.eaten(location, prey.PLANT_BITE);
+                            }
+                        }
+                        consumer.setLocation(location);
+                        plants.remove(location); // the animal takes the plant's place
+                    }
+                    survivors.add(consumer);
+                    if (breeding[i]) {
+                        mate(consumer, origins[i], field, seed);
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        next.placeAll(survivors, pool);
+
+        for (int c = animals.size(); c < claimants; c++) {
+            if (won[c] >= 0 && animals.get(parents[c]).isAlive()) {
+                Location location = locationOf(won[c], width);
+                Consumer parent = (Consumer) animals.get(parents[c]);
+                next.placeAnimal(parent.newborn(next, location), location);
+            }
+        }
+    }
+
+    /**
+     * Let a breeding female mate with every male of her species around the
+     * position she started the step at.
+     */
+    private void mate(Consumer female, int cell, Field field, long seed) {
+        int width = field.getWidth();
+        int row = cell / width, col = cell % width;
+        for (int n = 0; n < ROW_OFFSETS.length; n++) {
+            int r = row + ROW_OFFSETS[n], c = col + COL_OFFSETS[n];
+            if (r < 0 || r >= field.getDepth() || c < 0 || c >= width) {
+                continue;
+            }
+            Animal other = field.getAnimalAt(new Location(r, c));
+            if (other instanceof Consumer mate && mate.getClass() == female.getClass()
+                    && mate.isMale() && mate.isAlive()) {
+                long key = (long) cell * 16 + 9 + n;
+                double draw = (Zobrist.mix(seed ^ key * Zobrist.GOLDEN_GAMMA) >>> 11) * 0x1.0p-53;
+                female.mateWith(mate, draw);
+            }
+        }
+    }
+
+    /**
+     * Return the neighbours of a position in an order shuffled by the seed,
+     * ending with -1 if there are fewer than eight.
+     */
+    private static int[] neighbours(int cell, Field field, long seed) {
+        int width = field.getWidth();
+        int row = cell / width, col = cell % width;
+        int[] order = new int[ROW_OFFSETS.length];
+        int count = 0;
+        for (int n = 0; n < ROW_OFFSETS.length; n++) {
+            int r = row + ROW_OFFSETS[n], c = col + COL_OFFSETS[n];
+            if (r >= 0 && r < field.getDepth() && c >= 0 && c < width) {
+                order[count++] = r * width + c;
+            }
+        }
+        long state = Zobrist.mix(seed ^ cell * Zobrist.GOLDEN_GAMMA);
+        for (int n = count - 1; n > 0; n--) {
+            state = Zobrist.mix(state + Zobrist.GOLDEN_GAMMA);
+            int other = (int) ((state >>> 33) % (n + 1));
+            int swap = order[n];
+            order[n] = order[other];
+            order[other] = swap;
+        }
+        if (count < order.length) {
+            order[count] = -1;
+        }
+        return order;
+    }
+
+    /**
+     * Make sure the scratch space can hold the animals and positions of a step.
+     */
+    private void prepare(int animals, int cells) {
+        if (states.length < animals) {
+            int size = Math.max(animals, states.length * 2);
+            states = new byte[size];
+            candidates = new int[size * MAX_CANDIDATES];
+            candidateCounts = new byte[size];
+            foodCounts = new byte[size];
+            hunting = new boolean[size];
+            breeding = new boolean[size];
+            litters = new int[size];
+            origins = new int[size];
+            hunters = new int[size];
+        }
+        if (taken.length != cells) {
+            best = new AtomicLongArray(cells);
+            taken = new int[cells];
+            animalAt = new int[cells];
+        }
+    }
+
+    /**
+     * Make sure the scratch space can hold the claimants of a step.
+     */
+    private void growClaimants(int claimants) {
+        if (parents.length < claimants) {
+            int size = Math.max(claimants, parents.length * 2);
+            parents = new int[size];
+            choices = new int[size];
+            claimed = new int[size];
+            won = new int[size];
+            priorities = new long[size];
+        }
+    }
+
+    /**
+     * Run a task for every index below a bound, shared between the threads.
+     */
+    private void parallel(int bound, IntConsumer task) {
+        pool.submit(() -> IntStream.range(0, bound).parallel().forEach(task)).join();
+    }
+
+    /**
+     * Run a task returning a position for every index below a bound, and
+     * return how many of them returned one.
+     */
+    private long map(int bound, IntUnaryOperator task) {
+        return pool.submit(() -> IntStream.range(0, bound).parallel()
+                .filter(index -> task.applyAsInt(index) >= 0).count()).join();
+    }
+
+    /**
+     * Return the position of a location in the field's arrays.
+     */
+    private static int indexOf(Location location, int width) {
+        return location.row() * width + location.col();
+    }
+
+    /**
+     * Return the location of a position.
+     */
+    private static Location locationOf(int index, int width) {
+        return new Location(index / width, index % width);
+    }
+}
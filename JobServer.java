@@ -0,0 +1,555 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A long-lived local service that runs headless simulations on request, so
+ * that many runs share one warmed-up JVM instead of each starting its own.
+ * <p>
+ * Jobs are submitted over HTTP and run on a fixed pool of worker threads,
+ * each simulation on one thread with the random generator of that thread
+ * seeded for the job. At most a fixed number of jobs wait for a worker, and
+ * a submission beyond that is turned away until the queue drains. Requests
+ * are answered on threads of their own, so a client waiting for its result
+ * does not hold up a worker. Finished results are kept in a ResultCache
+ * under the hash of the job's description, and a job asked for again is
+ * answered from the cache without being run.
+ * <ul>
+ * <li>POST /jobs?seed=42&amp;steps=500 submits a job. The optional parameters
+ * are depth, width, mode (sequential or intent_commit) and threads. The answer
+ * is 200 with the result if it is cached, 202 with the job's id if it was
+ * queued, or 503 if the queue is full.</li>
+ * <li>GET /jobs/ID reports the state of a job and its result once it is done.
+ * With wait=true the answer is held back until the job finishes.</li>
+ * <li>DELETE /jobs/ID cancels a job that is queued or running.</li>
+ * </ul>
+ * Try it with: curl -X POST 'http://localhost:9401/jobs?seed=7&amp;steps=300'
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public class JobServer {
+    // The content type of every answer.
+    private static final String CONTENT_TYPE = "text/plain; charset=utf-8";
+    // Part of every job's description, to be changed when the model changes so old results are not reused.
+    private static final int MODEL_VERSION = 2;
+    // The largest number of steps a job may ask for.
+    private static final int MAX_STEPS = 1_000_000;
+    // The heap a field needs per position, for the animals and plants of two field states.
+    private static final long BYTES_PER_POSITION = 600;
+    // The largest field a job may ask for, in positions: no more than the heap can hold.
+    private static final long MAX_POSITIONS =
+            Math.min(100_000_000L, Runtime.getRuntime().maxMemory() / BYTES_PER_POSITION);
+    // How many finished jobs are remembered for clients to ask about.
+    private static final int FINISHED_JOBS_KEPT = 1000;
+
+    // The states a job passes through.
+    public enum State { QUEUED, RUNNING, DONE, FAILED, CANCELLED }
+
+    // Where finished results are kept.
+    private final ResultCache cache;
+    // The underlying server.
+    private final HttpServer server;
+    // The threads answering requests.
+    private final ExecutorService handlers;
+    // The threads running the simulations, with the bounded queue of jobs waiting for them.
+    private final ThreadPoolExecutor workers;
+    // The jobs that can be asked about, by id.
+    private final Map<Long, Job> jobs = new ConcurrentHashMap<>();
+    // The ids of finished jobs, oldest first, to forget the oldest.
+    private final Queue<Long> finished = new ConcurrentLinkedQueue<>();
+    // The id of the next job.
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    /**
+     * Create a server listening on the loopback interface. The server does
+     * not answer until it is started.
+     *
+     * @param port          The port to listen on, or 0 for any free port.
+     * @param workerCount   The number of simulations run at once.
+     * @param queueCapacity The number of jobs that may wait for a worker.
+     * @param cache         Where finished results are kept.
+     * @throws IOException If the port cannot be bound.
+     */
+    public JobServer(int port, int workerCount, int queueCapacity, ResultCache cache) throws IOException {
+        this.cache = cache;
+        AtomicInteger workerNumber = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> new Thread(task, "simulation-worker-" + workerNumber.incrementAndGet()));
+        handlers = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "job-request");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(handlers);
+        server.createContext("/jobs", this::handle);
+    }
+
+    /**
+     * Start the job server, by default on port 9401 with one worker per processor.
+     *
+     * @param args Optionally the port, the number of workers, the capacity of
+     *             the queue and the directory of the cache.
+     * @throws IOException If the server cannot be started.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 9401;
+        int workerCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int queueCapacity = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        Path directory = Path.of(args.length > 3 ? args[3] : "job-cache");
+        JobServer jobServer = new JobServer(port, workerCount, queueCapacity, new ResultCache(directory));
+        jobServer.start();
+        System.out.println("Serving jobs on http://localhost:" + jobServer.getPort() + "/jobs");
+    }
+
+    /**
+     * Start answering requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop answering requests, cancel every job and release the port.
+     */
+    public void stop() {
+        server.stop(0);
+        workers.shutdownNow();
+        handlers.shutdownNow();
+    }
+
+    /**
+     * @return The port the server listens on.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Submit a job, unless its result is already cached.
+     *
+     * @param spec What to run.
+     * @return The queued job, or a finished one holding the cached result.
+     * @throws RejectedExecutionException If too many jobs are waiting already.
+     * @throws IOException                If the cache cannot be read.
+     */
+    public Job submit(JobSpec spec) throws IOException {
+        String cached = cache.get(spec.key());
+        Job job = new Job(nextId.getAndIncrement(), spec);
+        if (cached != null) {
+            job.finish(State.DONE, cached);
+            remember(job);
+            return job;
+        }
+        jobs.put(job.id, job);
+        try {
+            job.future = workers.submit(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Return a job that can still be asked about.
+     *
+     * @param id The id of the job.
+     * @return The job, or null if there is none with that id.
+     */
+    public Job getJob(long id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * Cancel a job if it has not finished, taking it off the queue if it is waiting.
+     *
+     * @param job The job.
+     * @return true if the job was cancelled.
+     */
+    public boolean cancel(Job job) {
+        boolean wasQueued = job.state == State.QUEUED;
+        if (!job.cancel()) {
+            return false;
+        }
+        if (wasQueued && job.future instanceof Runnable task) {
+            workers.remove(task);
+            remember(job);
+        }
+        return true;
+    }
+
+    /**
+     * Run a job on the current worker thread and keep its result.
+     */
+    private void run(Job job) {
+        if (!job.start()) {
+            return; // cancelled while queued
+        }
+        JobSpec spec = job.spec;
+        Simulator simulator = null;
+        try {
+            Randomizer.setSeed(spec.seed());
+            simulator = new Simulator(spec.depth(), spec.width(), false);
+            simulator.setUpdateMode(spec.mode(), spec.threads());
+            simulator.simulate(spec.steps());
+            if (Thread.currentThread().isInterrupted()) {
+                job.finish(State.CANCELLED, null);
+            } else {
+                String result = describe(simulator);
+                cache.put(spec.key(), result);
+                job.finish(State.DONE, result);
+            }
+        } catch (Throwable e) {
+            // errors too, such as running out of heap, or the job would be left running for good
+            job.finish(State.FAILED, e.toString());
+        } finally {
+            if (simulator != null) {
+                simulator.setUpdateMode(UpdateMode.SEQUENTIAL);
+            }
+            remember(job);
+        }
+    }
+
+    /**
+     * Return the result of a finished simulation, one name and value per line.
+     */
+    private static String describe(Simulator simulator) {
+        SimulationMetrics metrics = simulator.getMetrics();
+        StringBuilder out = new StringBuilder(512);
+        out.append("step=").append(simulator.getStep()).append('\n');
+        out.append("hash=").append(Long.toHexString(simulator.getStateHash())).append('\n');
+        out.append("settled=").append(simulator.isSettled()).append('\n');
+        for (Species species : Species.values()) {
+            if (species != Species.EMPTY) {
+                out.append("population.").append(lowerCase(species)).append('=')
+                        .append(metrics.getPopulation(species)).append('\n');
+            }
+        }
+        out.append("births=").append(metrics.getBirths()).append('\n');
+        for (DeathCause cause : DeathCause.values()) {
+            out.append("deaths.").append(lowerCase(cause)).append('=').append(metrics.getDeaths(cause)).append('\n');
+        }
+        out.append("infections=").append(metrics.getInfections()).append('\n');
+        return out.toString();
+    }
+
+    /**
+     * Keep a finished job to be asked about, forgetting the oldest if too many are kept.
+     */
+    private void remember(Job job) {
+        jobs.put(job.id, job);
+        finished.add(job.id);
+        while (finished.size() > FINISHED_JOBS_KEPT) {
+            Long oldest = finished.poll();
+            if (oldest != null) {
+                jobs.remove(oldest);
+            }
+        }
+    }
+
+    /**
+     * Answer a request about jobs.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            Map<String, String> params = parameters(exchange);
+            if (path.equals("/jobs") || path.equals("/jobs/")) {
+                if (!"POST".equals(method)) {
+                    respond(exchange, 405, "use POST to submit a job\n");
+                    return;
+                }
+                handleSubmit(exchange, params);
+                return;
+            }
+            Job job;
+            try {
+                job = jobs.get(Long.parseLong(path.substring("/jobs/".length())));
+            } catch (NumberFormatException e) {
+                job = null;
+            }
+            if (job == null) {
+                respond(exchange, 404, "no such job\n");
+            } else if ("GET".equals(method)) {
+                if (Boolean.parseBoolean(params.get("wait"))) {
+                    job.await();
+                }
+                respond(exchange, 200, job.report());
+            } else if ("DELETE".equals(method)) {
+                respond(exchange, cancel(job) ? 200 : 409, job.report());
+            } else {
+                respond(exchange, 405, "use GET or DELETE on a job\n");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Answer a submission of a job.
+     */
+    private void handleSubmit(HttpExchange exchange, Map<String, String> params) throws IOException {
+        JobSpec spec;
+        try {
+            spec = JobSpec.from(params);
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, e.getMessage() + "\n");
+            return;
+        }
+        Job job;
+        try {
+            job = submit(spec);
+        } catch (RejectedExecutionException e) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respond(exchange, 503, "too many jobs waiting, try again later\n");
+            return;
+        }
+        exchange.getResponseHeaders().set("Location", "/jobs/" + job.id);
+        if (job.state == State.DONE) {
+            exchange.getResponseHeaders().set("X-Cache", "hit");
+            respond(exchange, 200, job.report());
+        } else {
+            respond(exchange, 202, job.report());
+        }
+    }
+
+    /**
+     * Return the parameters of a request, from its query and any form in its body.
+     */
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        addParameters(params, exchange.getRequestURI().getRawQuery());
+        try (InputStream body = exchange.getRequestBody()) {
+            addParameters(params, new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    /**
+     * Add the parameters of a query string or form.
+     */
+    private static void addParameters(Map<String, String> params, String query) {
+        if (query == null || query.isBlank()) {
+            return;
+        }
+        for (String pair : query.trim().split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Send a text answer.
+     */
+    private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream response = exchange.getResponseBody()) {
+            response.write(body);
+        }
+    }
+
+    /**
+     * Return the lower case name of a value.
+     */
+    private static String lowerCase(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * What a job runs: a field of a size, stepped in a mode, from a seed, for a number of steps.
+     *
+     * @param depth   The depth of the field.
+     * @param width   The width of the field.
+     * @param mode    How the animals are moved on.
+     * @param threads The number of threads for the two-phase mode, which does not change the result.
+     * @param seed    The seed of the random generator.
+     * @param steps   The number of steps to run for.
+     */
+    public record JobSpec(int depth, int width, UpdateMode mode, int threads, long seed, int steps) {
+        /**
+         * Read a job's description from the parameters of a request.
+         *
+         * @param params The parameters.
+         * @return The description.
+         * @throws IllegalArgumentException If a parameter is missing or out of range.
+         */
+        public static JobSpec from(Map<String, String> params) {
+            try {
+                int depth = Integer.parseInt(params.getOrDefault("depth", "85"));
+                int width = Integer.parseInt(params.getOrDefault("width", "130"));
+                UpdateMode mode = UpdateMode.valueOf(params.getOrDefault("mode", "sequential").toUpperCase(Locale.ROOT));
+                int threads = Integer.parseInt(params.getOrDefault("threads", "1"));
+                long seed = Long.parseLong(params.getOrDefault("seed", "1111"));
+                String steps = params.get("steps");
+                if (steps == null) {
+                    throw new IllegalArgumentException("steps is required");
+                }
+                return new JobSpec(depth, width, mode, threads, seed, Integer.parseInt(steps));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("not a number: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Check that the job is one the server will run.
+         */
+        public JobSpec {
+            if (depth <= 0 || width <= 0 || (long) depth * width > MAX_POSITIONS) {
+                throw new IllegalArgumentException("depth and width must be positive and at most "
+                        + MAX_POSITIONS + " positions in all");
+            }
+            if (threads <= 0) {
+                throw new IllegalArgumentException("threads must be positive");
+            }
+            if (steps <= 0 || steps > MAX_STEPS) {
+                throw new IllegalArgumentException("steps must be from 1 to " + MAX_STEPS);
+            }
+        }
+
+        /**
+         * Return the key the job's result is cached under. The number of
+         * threads is left out because it does not change the result.
+         *
+         * @return The key.
+         */
+        public String key() {
+            return ResultCache.keyOf("model=" + MODEL_VERSION + " depth=" + depth + " width=" + width
+                    + " mode=" + mode + " seed=" + seed + " steps=" + steps);
+        }
+    }
+
+    /**
+     * A submitted job, its state and, once it is done, its result.
+     */
+    public static class Job {
+        // The job's id.
+        private final long id;
+        // What the job runs.
+        private final JobSpec spec;
+        // Released when the job finishes.
+        private final CountDownLatch done = new CountDownLatch(1);
+        // The job's state.
+        private volatile State state = State.QUEUED;
+        // The result, or the error of a failed job.
+        private volatile String result;
+        // The task running the job, once it is queued.
+        private volatile Future<?> future;
+
+        private Job(long id, JobSpec spec) {
+            this.id = id;
+            this.spec = spec;
+        }
+
+        /**
+         * @return The job's id.
+         */
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * @return The job's state.
+         */
+        public State getState() {
+            return state;
+        }
+
+        /**
+         * @return The job's result, or the error if it failed, or null if it is not done.
+         */
+        public String getResult() {
+            return result;
+        }
+
+        /**
+         * Wait for the job to finish.
+         *
+         * @throws InterruptedException If the waiting thread is interrupted.
+         */
+        public void await() throws InterruptedException {
+            done.await();
+        }
+
+        /**
+         * Cancel the job if it has not finished. A queued job never starts and
+         * a running one stops at its next step.
+         *
+         * @return true if the job was cancelled.
+         */
+        public synchronized boolean cancel() {
+            if (state != State.QUEUED && state != State.RUNNING) {
+                return false;
+            }
+            if (state == State.QUEUED) {
+                finish(State.CANCELLED, null);
+            }
+            if (future != null) {
+                future.cancel(true);
+            }
+            return true;
+        }
+
+        /**
+         * Mark the job as running, unless it has been cancelled.
+         */
+        private synchronized boolean start() {
+            if (state != State.QUEUED) {
+                return false;
+            }
+            state = State.RUNNING;
+            return true;
+        }
+
+        /**
+         * Mark the job as finished with the given result.
+         */
+        private synchronized void finish(State finalState, String finalResult) {
+            if (done.getCount() == 0) {
+                return;
+            }
+            result = finalResult;
+            state = finalState;
+            done.countDown();
+        }
+
+        /**
+         * Return the job's id, state and any result, one name and value per line.
+         */
+        private String report() {
+            String text = "id=" + id + "\nstate=" + lowerCase(state) + "\n";
+            return result == null ? text : text + result;
+        }
+    }
+}
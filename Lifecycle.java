@@ -0,0 +1,410 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the clock of a simulation and the deaths from old age and disease that
+ * are already known. An animal's age is derived from the step at which it was
+ * born, so nothing has to be counted up each step. Deaths are filed on a timing
+ * wheel by the step at which they fall due and are only processed at that step.
+ * <p>
+ * Dead consumers are kept on a free list per species and reborn as newborns
+ * instead of allocating new objects. An animal is only released once no state
+ * of the field refers to it any more, and every rebirth starts a new generation
+ * of the object so that entries filed for its earlier life are ignored.
+ * <p>
+ * The animals carrying a disease are kept in a DiseaseIndex as they are
+ * registered, catch it and die.
+ * <p>
+ * The region counts and density pyramid of the field, which pass from each
+ * state of the field to the next, are kept up to date here with each birth,
+ * death and move, so a step changes only the counts of the animals that were
+ * born, died or moved.
+ *
+ * @author Krish Shah
+ * @version 1.1
+ */
+public class Lifecycle {
+    // The initial number of slots on the wheel, a power of two.
+    private static final int INITIAL_WHEEL_SIZE = 256;
+
+    // The current step.
+    private int step;
+    // The animals whose death falls due at each step, by step modulo the wheel size.
+    private Slot[] wheel;
+    // The number of deaths still pending in each slot of the wheel.
+    private int[] pending;
+    // The number of deaths processed at the current step.
+    private int deathsProcessed;
+    // The number of deaths at the current step, by cause.
+    private final int[] deaths = new int[DeathCause.values().length];
+    // The number of births at the current step.
+    private int births;
+    // Dead consumers available for reuse, by species.
+    private final Map<Class<?>, ArrayDeque<Consumer>> freeLists = new HashMap<>();
+    // The animals carrying a disease.
+    private final DiseaseIndex disease = new DiseaseIndex();
+    // The log told of births, deaths and moves, or null if none is recording.
+    private EventLog eventLog;
+    // The number of each species by region, by species ordinal, or null if regions are not counted.
+    private FenwickGrid[] regions;
+    // The number of each species by block at several resolutions, or null if none is kept.
+    private DensityPyramid pyramid;
+
+    /**
+     * Create a lifecycle starting at step zero.
+     */
+    public Lifecycle() {
+        createWheel(INITIAL_WHEEL_SIZE);
+        step = 0;
+    }
+
+    /**
+     * Return the current step.
+     *
+     * @return The current step.
+     */
+    public int getStep() {
+        return step;
+    }
+
+    /**
+     * Move on to the next step, and let every animal whose time is up die.
+     */
+    public void advance() {
+        step++;
+        int slot = slotOf(step);
+        Slot due = wheel[slot];
+        deathsProcessed = 0;
+        Arrays.fill(deaths, 0);
+        births = 0;
+        disease.advance(step);
+        for (int i = 0; i < due.size; i++) {
+            Animal anAnimal = due.animals[i];
+            // entries of animals that died otherwise, were rescheduled or reborn are stale
+            if (anAnimal.getGeneration() == due.generations[i]
+                    && anAnimal.isAlive() && anAnimal.getDeathStep() == step) {
+                anAnimal.setDead(anAnimal.isDiseased() ? DeathCause.DISEASE : DeathCause.AGE);
+                deathsProcessed++;
+            }
+        }
+        due.clear();
+        pending[slot] = 0;
+    }
+
+    /**
+     * Start tracking an animal that has just been placed in the field.
+     * Its birth step is worked out from the age it was created with.
+     *
+     * @param anAnimal The animal to track.
+     */
+    public void register(Animal anAnimal) {
+        anAnimal.enterLifecycle(this, step - anAnimal.age);
+        schedule(anAnimal);
+        count(anAnimal, anAnimal.getLocation(), 1);
+        if (step > 0) { // the initial population is not born
+            births++;
+            if (eventLog != null) {
+                eventLog.born(anAnimal);
+            }
+        }
+        if (anAnimal.isDiseased()) {
+            disease.infect(anAnimal, step, false, step > 0);
+        }
+    }
+
+    /**
+     * Record that a tracked animal has caught a disease from another animal.
+     * Its life expectancy should already have been shortened.
+     *
+     * @param anAnimal The animal that caught the disease.
+     */
+    public void recordInfection(Animal anAnimal) {
+        disease.infect(anAnimal, step, true, true);
+    }
+
+    /**
+     * File an animal's death again after its life expectancy has changed.
+     *
+     * @param anAnimal  The animal to reschedule.
+     * @param deathStep The step at which the animal now dies.
+     */
+    public void reschedule(Animal anAnimal, int deathStep) {
+        cancel(anAnimal);
+        anAnimal.setDeathStep(deathStep);
+        schedule(anAnimal);
+    }
+
+    /**
+     * Record the death of a tracked animal at the current step.
+     *
+     * @param anAnimal The animal that died.
+     * @param cause    Why it died.
+     */
+    public void recordDeath(Animal anAnimal, DeathCause cause) {
+        cancel(anAnimal);
+        count(anAnimal, anAnimal.getLocation(), -1);
+        deaths[cause.ordinal()]++;
+        disease.remove(anAnimal, cause);
+        if (eventLog != null) {
+            eventLog.died(anAnimal, cause);
+        }
+    }
+
+    /**
+     * Record that a tracked animal has moved.
+     *
+     * @param anAnimal The animal that moved.
+     * @param from     Where it was.
+     * @param to       Where it is now.
+     */
+    public void recordMove(Animal anAnimal, Location from, Location to) {
+        count(anAnimal, from, -1);
+        count(anAnimal, to, 1);
+        if (eventLog != null) {
+            eventLog.moved(anAnimal, from, to);
+        }
+    }
+
+    /**
+     * Tell a log of the births, deaths and moves from now on.
+     *
+     * @param eventLog The log, or null to tell none.
+     */
+    void setEventLog(EventLog eventLog) {
+        this.eventLog = eventLog;
+    }
+
+    /**
+     * Keep counts of the animals by region up to date with the births, deaths
+     * and moves from now on. The counts must already hold every tracked
+     * animal that is alive, where it is.
+     *
+     * @param regions The counts by species ordinal, or null to keep none.
+     */
+    void setRegionCounts(FenwickGrid[] regions) {
+        this.regions = regions;
+    }
+
+    /**
+     * Keep a density pyramid of the animals up to date with the births,
+     * deaths and moves from now on. The pyramid must already hold every
+     * tracked animal that is alive, where it is.
+     *
+     * @param pyramid The pyramid, whose kinds are species ordinals, or null to keep none.
+     */
+    void setDensityPyramid(DensityPyramid pyramid) {
+        this.pyramid = pyramid;
+    }
+
+    /**
+     * Stop counting an animal's pending death, because it has died otherwise.
+     * The animal's entry stays on the wheel and is skipped when its slot comes up.
+     *
+     * @param anAnimal The animal that will not die as scheduled.
+     */
+    public void cancel(Animal anAnimal) {
+        int deathStep = anAnimal.getDeathStep();
+        if (deathStep > step) {
+            pending[slotOf(deathStep)]--;
+        }
+    }
+
+    /**
+     * Return the number of deaths from old age or disease due at a later step.
+     *
+     * @param stepsAhead How many steps ahead of the current step to look.
+     * @return The number of deaths scheduled for that step.
+     */
+    public int getScheduledDeaths(int stepsAhead) {
+        if (stepsAhead <= 0 || stepsAhead >= wheel.length) {
+            return 0;
+        }
+        return pending[slotOf(step + stepsAhead)];
+    }
+
+    /**
+     * Return the number of deaths from old age or disease at the current step.
+     *
+     * @return The number of deaths processed by the last advance.
+     */
+    public int getDeathsProcessed() {
+        return deathsProcessed;
+    }
+
+    /**
+     * Return the number of deaths from a cause at the current step.
+     *
+     * @param cause The cause of death.
+     * @return The number of animals that died of it.
+     */
+    public int getDeaths(DeathCause cause) {
+        return deaths[cause.ordinal()];
+    }
+
+    /**
+     * Return the number of animals born at the current step.
+     *
+     * @return The number of births.
+     */
+    public int getBirths() {
+        return births;
+    }
+
+    /**
+     * Return the index of the animals carrying a disease.
+     *
+     * @return The disease index.
+     */
+    public DiseaseIndex getDiseaseIndex() {
+        return disease;
+    }
+
+    /**
+     * Take a dead consumer of the given species off its free list and give
+     * it the state of a newborn at the given location.
+     *
+     * @param species  The species of the newborn.
+     * @param location Where the newborn will be placed.
+     * @return The reborn consumer, or null if none of the species is free.
+     */
+    public <T extends Consumer> T reuse(Class<T> species, Location location) {
+        ArrayDeque<Consumer> free = freeLists.get(species);
+        if (free == null || free.isEmpty()) {
+            return null;
+        }
+        T young = species.cast(free.pop());
+        young.reborn(location);
+        return young;
+    }
+
+    /**
+     * Hand a dead animal back for reuse. The animal must no longer be
+     * referred to by any state of the field.
+     *
+     * @param anAnimal The dead animal.
+     */
+    public void release(Animal anAnimal) {
+        assert !anAnimal.isAlive();
+        if (anAnimal instanceof Consumer consumer) {
+            freeLists.computeIfAbsent(consumer.getClass(), k -> new ArrayDeque<>()).push(consumer);
+        }
+    }
+
+    /**
+     * Forget every animal and go back to step zero.
+     */
+    public void reset() {
+        createWheel(INITIAL_WHEEL_SIZE);
+        freeLists.clear();
+        disease.clear();
+        step = 0;
+        deathsProcessed = 0;
+        Arrays.fill(deaths, 0);
+        births = 0;
+    }
+
+    /**
+     * Place an animal on the wheel at its death step, growing the wheel if the
+     * death lies beyond its horizon.
+     */
+    private void schedule(Animal anAnimal) {
+        int deathStep = anAnimal.getDeathStep();
+        if (deathStep <= step) {
+            // already past its life expectancy; it dies when the clock next moves
+            deathStep = step + 1;
+            anAnimal.setDeathStep(deathStep);
+        }
+        if (deathStep - step >= wheel.length) {
+            resize(Integer.highestOneBit(deathStep - step) * 2, anAnimal);
+        }
+        int slot = slotOf(deathStep);
+        wheel[slot].add(anAnimal);
+        pending[slot]++;
+    }
+
+    /**
+     * Rebuild the wheel with more slots, refiling every entry that is still current
+     * except that of the animal about to be scheduled.
+     */
+    private void resize(int size, Animal scheduling) {
+        Slot[] oldWheel = wheel;
+        createWheel(size);
+        for (int oldSlot = 0; oldSlot < oldWheel.length; oldSlot++) {
+            Slot entries = oldWheel[oldSlot];
+            for (int i = 0; i < entries.size; i++) {
+                Animal anAnimal = entries.animals[i];
+                int deathStep = anAnimal.getDeathStep();
+                if (anAnimal != scheduling && anAnimal.getGeneration() == entries.generations[i] && anAnimal.isAlive()
+                        && deathStep > step && (deathStep & (oldWheel.length - 1)) == oldSlot) {
+                    int newSlot = slotOf(deathStep);
+                    wheel[newSlot].add(anAnimal);
+                    pending[newSlot]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Create an empty wheel with the given number of slots.
+     */
+    private void createWheel(int size) {
+        wheel = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Slot();
+        }
+        pending = new int[size];
+    }
+
+    /**
+     * Add to the counts and pyramid of an animal's species at a location.
+     */
+    private void count(Animal anAnimal, Location location, int delta) {
+        int species = Species.of(anAnimal).ordinal();
+        if (regions != null) {
+            regions[species].add(location.row(), location.col(), delta);
+        }
+        if (pyramid != null) {
+            pyramid.add(location.row(), location.col(), species, delta);
+        }
+    }
+
+    /**
+     * Return the slot of the wheel for a step.
+     */
+    private int slotOf(int aStep) {
+        return aStep & (wheel.length - 1);
+    }
+
+    /**
+     * The animals filed in one slot of the wheel, each with the generation
+     * it was filed under.
+     */
+    private static class Slot {
+        private Animal[] animals = new Animal[8];
+        private int[] generations = new int[8];
+        private int size;
+
+        /**
+         * File an animal under its current generation.
+         */
+        private void add(Animal anAnimal) {
+            if (size == animals.length) {
+                animals = Arrays.copyOf(animals, size * 2);
+                generations = Arrays.copyOf(generations, size * 2);
+            }
+            animals[size] = anAnimal;
+            generations[size] = anAnimal.getGeneration();
+            size++;
+        }
+
+        /**
+         * Empty the slot, dropping its references to the animals.
+         */
+        private void clear() {
+            Arrays.fill(animals, 0, size, null);
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * What an EventLog records of each step.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public enum LogContent {
+    // Every birth, death, move and plant event, from which the whole state
+    // of the field, plant heights included, can be replayed.
+    EVENTS,
+    // Only what the view shows: the species code of each position, the
+    // animal there or else PLANT or EMPTY, as runs of changed positions.
+    FRAMES
+}
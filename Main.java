@@ -1,6 +1,18 @@
+import java.io.IOException;
+
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         Simulator sim = new Simulator();
+        // serve live metrics if a port is given, e.g. -Dmetrics.port=9400
+        String port = System.getProperty("metrics.port");
+        MetricsServer server = null;
+        if (port != null) {
+            server = new MetricsServer(sim.getMetrics(), Integer.parseInt(port));
+            server.start();
+        }
         sim.runLongSimulation();
+        if (server != null) {
+            server.stop();
+        }
     }
 }
@@ -20,15 +20,41 @@ public class Manatee extends Prey {
         super(randomAge, location, 4, 25, 2, 10, 70);
     }
 
+    /**
+     * Turn a dead Manatee into a newborn, as created by the constructor.
+     *
+     * @param location The location within the field.
+     */
+    @Override
+    protected void reborn(Location location) {
+        reset(location, 70);
+    }
+
     @Override
     public String toString() {
         return "Manatee{" +
-                "age=" + age +
+                "age=" + getAge() +
                 ", alive=" + isAlive() +
                 ", location=" + getLocation() +
                 '}';
     }
 
+    /**
+     * Create a newborn Manatee, reusing a dead one if there is one free.
+     *
+     * @param nextFieldState The updated field.
+     * @param location       The newborn's location.
+     * @return The newborn.
+     */
+    @Override
+    protected Manatee newborn(Field nextFieldState, Location location) {
+        Manatee young = nextFieldState.getLifecycle().reuse(Manatee.class, location);
+        if (young == null) {
+            young = new Manatee(false, location);
+        }
+        return young;
+    }
+
     /**
      * Check whether this Manatee is to give birth at this step.
      * New births will be made into free adjacent locations.
@@ -55,8 +81,7 @@ public class Manatee extends Prey {
             // based on number of males in vicinity or max number of births
             for (int b = 0; b < maleCount && b < MAX_LITTER_SIZE && !freeLocations.isEmpty(); b++) {
                 Location loc = freeLocations.remove(0);
-                Manatee young = new Manatee(false, loc);
-                nextFieldState.placeAnimal(young, loc);
+                nextFieldState.placeAnimal(newborn(nextFieldState, loc), loc);
             }
         }
     }
@@ -0,0 +1,333 @@
+import java.util.Arrays;
+
+/**
+ * A mean-field model of the populations of the simulation: rate equations of
+ * the generalised Lotka-Volterra kind, fitted to the populations of a
+ * calibration run of the agents, that can be integrated over millions of
+ * steps far faster than the agents can be stepped.
+ * <p>
+ * Time is counted in days of STEPS_PER_DAY steps, so that the rise and fall of
+ * the populations between day and night averages out. The growth of a species
+ * over a day, per head, is modelled as a base rate plus a term for the density
+ * of each species it interacts with: itself, for crowding, the species it eats
+ * and the species that eat it. Species with no link in the food web do not
+ * affect each other directly. The coefficients are fitted by ridge regression,
+ * weighting each day by the population so that days with few animals count for
+ * little. Its own fit says little of how far a projection strays over many
+ * days, which FastForwardBounds measures against full runs.
+ *
+ * @author Krish Shah
+ * @version 2.0
+ */
+public class MeanFieldModel {
+    // The number of steps in a day of the simulation.
+    public static final int STEPS_PER_DAY = 24;
+    // The penalty on the interaction coefficients, which keeps the fit stable over a short window.
+    private static final double RIDGE = 1e-6;
+    // The species modelled: every kind of occupant but EMPTY.
+    private static final Species[] MODELLED = {
+            Species.PLANT, Species.TURTLE, Species.IGUANA, Species.MANATEE, Species.SHARK, Species.ORCA};
+
+    // The number of positions in the field, which turns populations into densities.
+    private final int positions;
+    // The growth per head per day of each species with nothing else present.
+    private final double[] rates;
+    // The change to that growth per unit density of each other species.
+    private final double[][] interactions;
+    // The root mean square error of the fitted daily growth per head of each species.
+    private final double[] residualErrors;
+
+    private MeanFieldModel(int positions, double[] rates, double[][] interactions, double[] residualErrors) {
+        this.positions = positions;
+        this.rates = rates;
+        this.interactions = interactions;
+        this.residualErrors = residualErrors;
+    }
+
+    /**
+     * Fit a model to the populations of a calibration run. How far its
+     * projections stray from full runs is measured by FastForwardBounds.
+     *
+     * @param populations The population of each species, by step then by species ordinal.
+     *                    At least two whole days are needed.
+     * @param positions   The number of positions in the field.
+     * @return The fitted model.
+     * @throws IllegalArgumentException If the run is shorter than two days.
+     */
+    public static MeanFieldModel fit(long[][] populations, int positions) {
+        double[][] days = dailyDensities(populations, positions);
+        if (days.length < 2) {
+            throw new IllegalArgumentException("the calibration run must cover at least two whole days");
+        }
+        return fitDays(days, positions);
+    }
+
+    /**
+     * Fit a model to the mean densities of a run over whole days.
+     */
+    private static MeanFieldModel fitDays(double[][] days, int positions) {
+        int n = MODELLED.length;
+        double[] rates = new double[n];
+        double[][] interactions = new double[n][n];
+        double[] residualErrors = new double[n];
+        for (int i = 0; i < n; i++) {
+            // the regressors: a constant, then the densities of the species this one interacts with
+            int[] partners = partners(MODELLED[i]);
+            int k = partners.length + 1;
+            double[][] normal = new double[k][k + 1];
+            for (int d = 0; d + 1 < days.length; d++) {
+                double weight = days[d][i] * positions;
+                if (weight <= 0) {
+                    continue;
+                }
+                double growth = logGrowth(days[d][i], days[d + 1][i], positions);
+                double[] x = regressors(days[d], partners);
+                for (int a = 0; a < k; a++) {
+                    for (int b = 0; b < k; b++) {
+                        normal[a][b] += weight * x[a] * x[b];
+                    }
+                    normal[a][k] += weight * x[a] * growth;
+                }
+            }
+            double total = normal[0][0];
+            if (total <= 0) {
+                continue; // never present: it stays absent
+            }
+            for (int a = 1; a < k; a++) {
+                normal[a][a] += RIDGE * total;
+            }
+            double[] coefficients = solve(normal);
+            rates[i] = coefficients[0];
+            for (int p = 0; p < partners.length; p++) {
+                interactions[i][partners[p]] = coefficients[p + 1];
+            }
+            residualErrors[i] = residualError(days, i, rates[i], interactions[i], positions);
+        }
+        return new MeanFieldModel(positions, rates, interactions, residualErrors);
+    }
+
+    /**
+     * Check whether one species affects the growth of another directly:
+     * they are the same species, or one eats the other.
+     *
+     * @param a One species.
+     * @param b The other species.
+     * @return true if the model links them.
+     */
+    public static boolean interacts(Species a, Species b) {
+        return a == b || eats(a, b) || eats(b, a);
+    }
+
+    /**
+     * Integrate the model forward from the given populations.
+     *
+     * @param populations The population of each species, by species ordinal.
+     * @param days        The number of days to integrate over.
+     * @return The projected population of each species, by species ordinal.
+     */
+    public long[] project(long[] populations, long days) {
+        double[] densities = new double[MODELLED.length];
+        for (int i = 0; i < densities.length; i++) {
+            densities[i] = (double) populations[MODELLED[i].ordinal()] / positions;
+        }
+        densities = projectDensities(densities, days);
+        long[] projected = new long[Species.values().length];
+        for (int i = 0; i < densities.length; i++) {
+            projected[MODELLED[i].ordinal()] = Math.round(densities[i] * positions);
+        }
+        return projected;
+    }
+
+    /**
+     * Return the growth per head per day of a species with nothing else present.
+     *
+     * @param species The species.
+     * @return The fitted base rate.
+     */
+    public double getRate(Species species) {
+        return rates[indexOf(species)];
+    }
+
+    /**
+     * Return how much the density of one species changes the growth of another.
+     *
+     * @param species The species whose growth is changed.
+     * @param other   The species whose density changes it.
+     * @return The fitted coefficient, zero if the species are not linked.
+     */
+    public double getInteraction(Species species, Species other) {
+        return interactions[indexOf(species)][indexOf(other)];
+    }
+
+    /**
+     * Return the root mean square error of the fitted daily growth per head
+     * of a species over the calibration run.
+     *
+     * @param species The species.
+     * @return The error of the fit, as a fraction of the population.
+     */
+    public double getResidualError(Species species) {
+        return residualErrors[indexOf(species)];
+    }
+
+    /**
+     * Integrate the model forward from the given densities of the modelled species.
+     */
+    private double[] projectDensities(double[] start, long days) {
+        int n = MODELLED.length;
+        double[] densities = start.clone();
+        double[] next = new double[n];
+        for (long d = 0; d < days; d++) {
+            for (int i = 0; i < n; i++) {
+                double growth = rates[i];
+                for (int j = 0; j < n; j++) {
+                    growth += interactions[i][j] * densities[j];
+                }
+                // growth applies to one more animal than there is, as in the fit
+                double population = (densities[i] * positions + 1) * Math.exp(growth) - 1;
+                if (densities[i] == 0 || population < 0.5) {
+                    population = 0; // fewer than one left: the species has died out for good
+                }
+                next[i] = Math.min(positions, population) / positions;
+            }
+            System.arraycopy(next, 0, densities, 0, n);
+        }
+        return densities;
+    }
+
+    /**
+     * Return the growth of a density over a day on a log scale, counting
+     * one more animal than there is so that dying out is a finite change.
+     */
+    private static double logGrowth(double from, double to, int positions) {
+        return Math.log((to * positions + 1) / (from * positions + 1));
+    }
+
+    /**
+     * Return the mean density of each modelled species over each whole day.
+     */
+    private static double[][] dailyDensities(long[][] populations, int positions) {
+        double[][] days = new double[populations.length / STEPS_PER_DAY][MODELLED.length];
+        for (int d = 0; d < days.length; d++) {
+            for (int s = d * STEPS_PER_DAY; s < (d + 1) * STEPS_PER_DAY; s++) {
+                for (int i = 0; i < MODELLED.length; i++) {
+                    days[d][i] += (double) populations[s][MODELLED[i].ordinal()] / positions;
+                }
+            }
+            for (int i = 0; i < MODELLED.length; i++) {
+                days[d][i] /= STEPS_PER_DAY;
+            }
+        }
+        return days;
+    }
+
+    /**
+     * Return the indices of the modelled species that affect the growth of a species.
+     */
+    private static int[] partners(Species species) {
+        int count = 0;
+        int[] partners = new int[MODELLED.length];
+        for (int j = 0; j < MODELLED.length; j++) {
+            if (interacts(species, MODELLED[j])) {
+                partners[count++] = j;
+            }
+        }
+        return Arrays.copyOf(partners, count);
+    }
+
+    /**
+     * Return the regressors of a day: a constant, then the densities of the partners.
+     */
+    private static double[] regressors(double[] densities, int[] partners) {
+        double[] x = new double[partners.length + 1];
+        x[0] = 1;
+        for (int p = 0; p < partners.length; p++) {
+            x[p + 1] = densities[partners[p]];
+        }
+        return x;
+    }
+
+    /**
+     * Return the root mean square error of the fitted daily growth of a species.
+     */
+    private static double residualError(double[][] days, int i, double rate, double[] coefficients, int positions) {
+        double sum = 0;
+        int count = 0;
+        for (int d = 0; d + 1 < days.length; d++) {
+            if (days[d][i] <= 0) {
+                continue;
+            }
+            double predicted = rate;
+            for (int j = 0; j < coefficients.length; j++) {
+                predicted += coefficients[j] * days[d][j];
+            }
+            double error = logGrowth(days[d][i], days[d + 1][i], positions) - predicted;
+            sum += error * error;
+            count++;
+        }
+        return count == 0 ? 0 : Math.sqrt(sum / count);
+    }
+
+    /**
+     * Solve a system of linear equations by Gaussian elimination with partial
+     * pivoting. Each row holds the coefficients followed by the right hand side.
+     */
+    private static double[] solve(double[][] system) {
+        int k = system.length;
+        for (int col = 0; col < k; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < k; row++) {
+                if (Math.abs(system[row][col]) > Math.abs(system[pivot][col])) {
+                    pivot = row;
+                }
+            }
+            double[] swap = system[col];
+            system[col] = system[pivot];
+            system[pivot] = swap;
+            if (system[col][col] == 0) {
+                continue;
+            }
+            for (int row = col + 1; row < k; row++) {
+                double factor = system[row][col] / system[col][col];
+                for (int c = col; c <= k; c++) {
+                    system[row][c] -= factor * system[col][c];
+                }
+            }
+        }
+        double[] solution = new double[k];
+        for (int row = k - 1; row >= 0; row--) {
+            double value = system[row][k];
+            for (int c = row + 1; c < k; c++) {
+                value -= system[row][c] * solution[c];
+            }
+            solution[row] = system[row][row] == 0 ? 0 : value / system[row][row];
+        }
+        return solution;
+    }
+
+    /**
+     * Check whether the first species eats the second.
+     */
+    private static boolean eats(Species eater, Species food) {
+        Class<?> type = eater.getType();
+        if (type == null || food.getType() == null) {
+            return false;
+        }
+        if (Predator.class.isAssignableFrom(type)) {
+            return Prey.class.isAssignableFrom(food.getType());
+        }
+        return Prey.class.isAssignableFrom(type) && food == Species.PLANT;
+    }
+
+    /**
+     * Return the position of a species among the modelled species.
+     */
+    private static int indexOf(Species species) {
+        for (int i = 0; i < MODELLED.length; i++) {
+            if (MODELLED[i] == species) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("not modelled: " + species);
+    }
+}
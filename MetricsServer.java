@@ -0,0 +1,190 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * A small HTTP endpoint serving the metrics of a running simulation in the
+ * Prometheus text format at /metrics. It answers on a thread of its own and
+ * only reads the simulation's metrics, so scraping never holds up the steps.
+ * The heap and garbage collection figures are read from the JVM when scraped.
+ * <p>
+ * Try it with: curl http://localhost:9400/metrics
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public class MetricsServer {
+    // The content type of the Prometheus text format.
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    // The metrics served.
+    private final SimulationMetrics metrics;
+    // The underlying server.
+    private final HttpServer server;
+
+    /**
+     * Create a server for the given metrics, listening on the loopback interface.
+     * The server does not answer until it is started.
+     *
+     * @param metrics The metrics to serve.
+     * @param port    The port to listen on, or 0 for any free port.
+     * @throws IOException If the port cannot be bound.
+     */
+    public MetricsServer(SimulationMetrics metrics, int port) throws IOException {
+        this.metrics = metrics;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", this::handle);
+    }
+
+    /**
+     * Start answering requests on a background thread.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop answering requests and release the port.
+     */
+    public void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * @return The port the server listens on.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Return the metrics in the Prometheus text format.
+     *
+     * @return The text of a scrape.
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+
+        header(out, "simulation_steps_total", "counter", "Steps simulated.");
+        sample(out, "simulation_steps_total", "", metrics.getSteps());
+        header(out, "simulation_steps_per_second", "gauge", "Smoothed rate of steps simulated.");
+        sample(out, "simulation_steps_per_second", "", metrics.getStepRate());
+
+        header(out, "simulation_step_duration_seconds", "histogram", "Time taken to simulate a step.");
+        double[] bounds = SimulationMetrics.LATENCY_BUCKETS;
+        for (int i = 0; i < bounds.length; i++) {
+            String bound = BigDecimal.valueOf(bounds[i]).stripTrailingZeros().toPlainString();
+            sample(out, "simulation_step_duration_seconds_bucket", "le=\"" + bound + "\"", metrics.getLatencyCount(i));
+        }
+        long count = metrics.getLatencyCount(bounds.length);
+        sample(out, "simulation_step_duration_seconds_bucket", "le=\"+Inf\"", count);
+        sample(out, "simulation_step_duration_seconds_sum", "", metrics.getLatencySum());
+        sample(out, "simulation_step_duration_seconds_count", "", count);
+
+        header(out, "simulation_population", "gauge", "Number of each species in the field.");
+        for (Species species : Species.values()) {
+            if (species != Species.EMPTY) {
+                sample(out, "simulation_population", label("species", species),
+                        metrics.getPopulation(species));
+            }
+        }
+        header(out, "simulation_births_total", "counter", "Animals born.");
+        sample(out, "simulation_births_total", "", metrics.getBirths());
+        header(out, "simulation_deaths_total", "counter", "Animals that died, by cause.");
+        for (DeathCause cause : DeathCause.values()) {
+            sample(out, "simulation_deaths_total", label("cause", cause), metrics.getDeaths(cause));
+        }
+
+        header(out, "simulation_infected", "gauge", "Number of animals carrying a disease.");
+        sample(out, "simulation_infected", "", metrics.getInfected());
+        header(out, "simulation_infections_total", "counter", "Animals that caught a disease, by how.");
+        sample(out, "simulation_infections_total", "source=\"birth\"",
+                metrics.getInfections() - metrics.getTransmissions());
+        sample(out, "simulation_infections_total", "source=\"contact\"", metrics.getTransmissions());
+
+        header(out, "simulation_step", "gauge", "Current step of the simulation.");
+        sample(out, "simulation_step", "", metrics.getStep());
+        header(out, "simulation_time_of_day_hours", "gauge", "Current time of day in the simulation.");
+        sample(out, "simulation_time_of_day_hours", "", metrics.getTime());
+
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        header(out, "jvm_heap_used_bytes", "gauge", "Heap memory in use.");
+        sample(out, "jvm_heap_used_bytes", "", heap.getUsed());
+        header(out, "jvm_heap_committed_bytes", "gauge", "Heap memory committed.");
+        sample(out, "jvm_heap_committed_bytes", "", heap.getCommitted());
+        header(out, "jvm_heap_max_bytes", "gauge", "Largest heap the JVM may use.");
+        sample(out, "jvm_heap_max_bytes", "", heap.getMax());
+
+        header(out, "jvm_gc_collections_total", "counter", "Garbage collections, by collector.");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sample(out, "jvm_gc_collections_total", label("gc", gc.getName()), gc.getCollectionCount());
+        }
+        header(out, "jvm_gc_collection_seconds_total", "counter", "Time spent collecting garbage, by collector.");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sample(out, "jvm_gc_collection_seconds_total", label("gc", gc.getName()),
+                    gc.getCollectionTime() / 1000.0);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Answer a request for the metrics.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream response = exchange.getResponseBody()) {
+                response.write(body);
+            }
+        }
+    }
+
+    /**
+     * Write the help and type lines introducing a metric.
+     */
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * Write one sample of a metric, with its labels if there are any.
+     */
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    /**
+     * Return a label with the lower case name of a value.
+     */
+    private static String label(String name, Object value) {
+        String text = value.toString().toLowerCase(Locale.ROOT).replace("\\", "\\\\").replace("\"", "\\\"");
+        return name + "=\"" + text + "\"";
+    }
+}
@@ -0,0 +1,121 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares stepping a large world with the animals in the order they moved
+ * and in the Morton order of their locations. A single simulation is warmed
+ * up and then stepped on; before each of its measured steps it is forked
+ * twice with the same seed, and one step of each branch is timed, one acting
+ * in the order the animals moved and the other sorting them first. Both
+ * orderings are therefore timed on the same states, which a pair of separate
+ * runs would not give, since the order the animals act in changes the course
+ * of the run. Which branch goes first alternates from step to step.
+ * <p>
+ * For each ordering it reports the time per step and per animal, sort
+ * included, and the cache misses caused by the animals looking at their
+ * neighbourhoods in that order. Java cannot read the processor's counters,
+ * so the misses are counted on a model of a level one data cache of 32 KB,
+ * 8-way set associative with 64 byte lines, fed with the positions of the
+ * array of positions each animal looks at.
+ * <pre>
+ *     java MortonBenchmark [depth width warmUpSteps measuredSteps]
+ * </pre>
+ *
+ * @author Krish Shah
+ * @version 2.0
+ */
+public class MortonBenchmark {
+    // The number of positions of the array of positions on one cache line of 64 bytes,
+    // with compressed references of 4 bytes.
+    private static final int POSITIONS_PER_LINE = 16;
+    // The number of sets and ways of the modelled cache.
+    private static final int SETS = 64, WAYS = 8;
+    // The seed of every branch, so that both orderings of a step draw the same numbers.
+    private static final long BRANCH_SEED = 42;
+
+    /**
+     * Run the comparison, by default on a 1000 by 1000 field.
+     *
+     * @param args Optionally the depth, width, steps to warm up with and steps to measure.
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int width = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int warmUp = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int measured = args.length > 3 ? Integer.parseInt(args[3]) : 30;
+        Randomizer.reset();
+        Simulator simulator = new Simulator(depth, width, false);
+        for (int n = 0; n < warmUp; n++) {
+            simulator.simulateOneStep();
+        }
+        MortonOrder order = new MortonOrder();
+        // the totals of each ordering, the order they moved in first
+        long[] nanos = new long[2];
+        long[] misses = new long[2];
+        long updates = 0;
+        for (int n = 0; n < measured; n++) {
+            List<Animal> moved = simulator.getField().getAnimals();
+            List<Animal> sorted = new ArrayList<>(moved);
+            order.sort(sorted);
+            misses[0] += countMisses(moved, depth, width);
+            misses[1] += countMisses(sorted, depth, width);
+            updates += moved.size();
+            for (int i = 0; i < 2; i++) {
+                int period = (n + i) % 2;
+                Simulator branch = simulator.fork(BRANCH_SEED);
+                branch.setSpatialOrder(period);
+                long start = System.nanoTime();
+                branch.simulateOneStep();
+                nanos[period] += System.nanoTime() - start;
+            }
+            simulator.simulateOneStep();
+        }
+        System.out.printf("%-8s %10s %14s %18s%n", "order", "ms/step", "ns/animal", "misses/animal");
+        for (int period = 0; period < 2; period++) {
+            System.out.printf("%-8s %10.2f %14.1f %18.2f%n", period == 0 ? "moved" : "morton",
+                    nanos[period] / 1e6 / measured, (double) nanos[period] / updates,
+                    (double) misses[period] / updates);
+        }
+        System.out.printf("morton takes %.1f%% of the time of moved%n", 100.0 * nanos[1] / nanos[0]);
+    }
+
+    /**
+     * Return the misses of the modelled cache when the animals, in order,
+     * look at every position of their neighbourhoods.
+     */
+    private static long countMisses(List<Animal> animals, int depth, int width) {
+        long[] tags = new long[SETS * WAYS];
+        long[] used = new long[SETS * WAYS];
+        Arrays.fill(tags, -1);
+        long clock = 0;
+        long misses = 0;
+        for (Animal anAnimal : animals) {
+            Location location = anAnimal.getLocation();
+            for (int row = Math.max(location.row() - 1, 0); row <= Math.min(location.row() + 1, depth - 1); row++) {
+                for (int col = Math.max(location.col() - 1, 0); col <= Math.min(location.col() + 1, width - 1); col++) {
+                    long line = ((long) row * width + col) / POSITIONS_PER_LINE;
+                    int set = (int) (line % SETS) * WAYS;
+                    int victim = set;
+                    boolean hit = false;
+                    for (int way = set; way < set + WAYS; way++) {
+                        if (tags[way] == line) {
+                            used[way] = ++clock;
+                            hit = true;
+                            break;
+                        }
+                        if (used[way] < used[victim]) {
+                            victim = way;
+                        }
+                    }
+                    if (!hit) {
+                        misses++;
+                        tags[victim] = line;
+                        used[victim] = ++clock;
+                    }
+                }
+            }
+        }
+        return misses;
+    }
+}
@@ -0,0 +1,113 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Puts a list of animals in Morton order (Z-order) of their locations, so that
+ * animals near each other in the field are near each other in the list. The
+ * animals then act in an order that touches the positions, plants and counts
+ * of one neighbourhood together rather than jumping across the field, which
+ * is meant to keep those arrays in the processor's caches.
+ * <p>
+ * The Morton code of a location interleaves the bits of its row and column.
+ * The list is sorted with a least significant digit radix sort on the codes,
+ * which takes time in proportion to the number of animals, and the buffers of
+ * the sort are kept from one sort to the next.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public class MortonOrder {
+    // The number of bits sorted on in each pass.
+    private static final int RADIX_BITS = 8;
+
+    // The Morton code of each animal in the upper half, its position in the list in the lower.
+    private long[] keys = new long[0];
+    // The keys as sorted by the previous pass.
+    private long[] sorted = new long[0];
+    // The animals in their old order.
+    private Animal[] animals = new Animal[0];
+    // The number of keys with each digit, then where the first of them goes.
+    private final int[] counts = new int[1 << RADIX_BITS];
+
+    /**
+     * Return the Morton code of a position.
+     *
+     * @param row The row, less than 65536.
+     * @param col The column, less than 65536.
+     * @return The bits of the row and column interleaved, the column's lowest.
+     */
+    public static long encode(int row, int col) {
+        return spread(row) << 1 | spread(col);
+    }
+
+    /**
+     * Reorder a list of animals in the Morton order of their locations.
+     * The locations must be distinct.
+     *
+     * @param list The animals, reordered in place.
+     */
+    public void sort(List<Animal> list) {
+        int size = list.size();
+        if (keys.length < size) {
+            int capacity = Math.max(size, keys.length * 3 / 2);
+            keys = new long[capacity];
+            sorted = new long[capacity];
+            animals = new Animal[capacity];
+        }
+        long highest = 0;
+        for (int i = 0; i < size; i++) {
+            Animal anAnimal = list.get(i);
+            Location location = anAnimal.getLocation();
+            long code = encode(location.row(), location.col());
+            highest |= code;
+            animals[i] = anAnimal;
+            keys[i] = code << 32 | i;
+        }
+        // only as many passes as the codes have digits
+        int bits = 64 - Long.numberOfLeadingZeros(highest);
+        long[] from = keys;
+        long[] to = sorted;
+        for (int shift = 32; shift < 32 + bits; shift += RADIX_BITS) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < size; i++) {
+                counts[digit(from[i], shift)]++;
+            }
+            int next = 0;
+            for (int d = 0; d < counts.length; d++) {
+                int count = counts[d];
+                counts[d] = next;
+                next += count;
+            }
+            for (int i = 0; i < size; i++) {
+                long key = from[i];
+                to[counts[digit(key, shift)]++] = key;
+            }
+            long[] swap = from;
+            from = to;
+            to = swap;
+        }
+        for (int i = 0; i < size; i++) {
+            list.set(i, animals[(int) from[i]]);
+        }
+        Arrays.fill(animals, 0, size, null);
+    }
+
+    /**
+     * Return the digit of a key sorted on by the pass at the given shift.
+     */
+    private static int digit(long key, int shift) {
+        return (int) (key >>> shift) & ((1 << RADIX_BITS) - 1);
+    }
+
+    /**
+     * Spread the lower 16 bits of a number out to the even bits.
+     */
+    private static long spread(int value) {
+        long x = value & 0xFFFFL;
+        x = (x | x << 8) & 0x00FF00FFL;
+        x = (x | x << 4) & 0x0F0F0F0FL;
+        x = (x | x << 2) & 0x33333333L;
+        x = (x | x << 1) & 0x55555555L;
+        return x;
+    }
+}
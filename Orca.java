@@ -29,16 +29,42 @@ public class Orca extends Predator {
     }
 
 
+    /**
+     * Turn a dead Orca into a newborn, as created by the constructor.
+     *
+     * @param location The location within the field.
+     */
+    @Override
+    protected void reborn(Location location) {
+        reset(location, rand.nextInt(11) + 10);
+    }
+
     @Override
     public String toString() {
         return "Orca{" +
-                "age=" + age +
+                "age=" + getAge() +
                 ", alive=" + isAlive() +
                 ", location=" + getLocation() +
                 ", foodLevel=" + foodLevel +
                 '}';
     }
 
+    /**
+     * Create a newborn Orca, reusing a dead one if there is one free.
+     *
+     * @param nextFieldState The updated field.
+     * @param location       The newborn's location.
+     * @return The newborn.
+     */
+    @Override
+    protected Orca newborn(Field nextFieldState, Location location) {
+        Orca young = nextFieldState.getLifecycle().reuse(Orca.class, location);
+        if (young == null) {
+            young = new Orca(false, location);
+        }
+        return young;
+    }
+
     /**
      * Check whether this Orca is to give birth at this step.
      * New births will be made into free adjacent locations.
@@ -65,8 +91,7 @@ public class Orca extends Predator {
             // based on number of males in vicinity or max number of births
             for (int b = 0; b < maleCount && b < MAX_LITTER_SIZE && !freeLocations.isEmpty(); b++) {
                 Location loc = freeLocations.remove(0);
-                Orca young = new Orca(false, loc);
-                nextFieldState.placeAnimal(young, loc);
+                nextFieldState.placeAnimal(newborn(nextFieldState, loc), loc);
             }
         }
     }
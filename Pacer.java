@@ -0,0 +1,163 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decides when a simulation may take its next step. Depending on the
+ * pacing mode it lets steps run unthrottled, holds them to a target number
+ * of steps per second, or waits for the view to show each step. It can
+ * also pause the run and let it through one step at a time. The settings
+ * may be changed from another thread, such as the view's, while a run is
+ * in progress.
+ * <p>
+ * A target rate is kept by a drift-corrected schedule: each step is due
+ * one period after the previous one was due, rather than after it ended,
+ * so the time taken by the steps themselves does not slow the run down.
+ * A run that falls more than a period behind starts a new schedule
+ * instead of rushing to catch up.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public class Pacer {
+    // The default number of steps per second of an interactive run.
+    public static final double DEFAULT_RATE = 10;
+    // The allowed range of target rates.
+    public static final double MIN_RATE = 0.5, MAX_RATE = 1000;
+
+    // The current pacing mode.
+    private volatile PacingMode mode;
+    // The number of steps per second in TARGET_RATE mode.
+    private volatile double targetRate = DEFAULT_RATE;
+    // Whether the run is paused, and how many steps it may take while paused.
+    private boolean paused;
+    private int stepsAllowed;
+    // When the next step is due in TARGET_RATE mode, or 0 to start a new schedule.
+    private long deadline;
+
+    /**
+     * Create a pacer in the given mode.
+     *
+     * @param mode How fast to run.
+     */
+    public Pacer(PacingMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * @return The current pacing mode.
+     */
+    public PacingMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Change how fast the run goes from the next step on.
+     *
+     * @param mode The new pacing mode.
+     */
+    public synchronized void setMode(PacingMode mode) {
+        this.mode = mode;
+        deadline = 0;
+    }
+
+    /**
+     * @return The number of steps per second aimed for in TARGET_RATE mode.
+     */
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    /**
+     * Set the number of steps per second to aim for in TARGET_RATE mode.
+     *
+     * @param stepsPerSecond The rate, kept between MIN_RATE and MAX_RATE.
+     */
+    public synchronized void setTargetRate(double stepsPerSecond) {
+        targetRate = Math.max(MIN_RATE, Math.min(stepsPerSecond, MAX_RATE));
+        deadline = 0;
+    }
+
+    /**
+     * @return true if the run is paused.
+     */
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Pause or resume the run.
+     *
+     * @param paused true to pause, false to resume.
+     */
+    public synchronized void setPaused(boolean paused) {
+        this.paused = paused;
+        stepsAllowed = 0;
+        deadline = 0;
+        notifyAll();
+    }
+
+    /**
+     * Let a paused run take one more step.
+     */
+    public synchronized void step() {
+        if (paused) {
+            stepsAllowed++;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Wait until the run may take its next step: while it is paused,
+     * until a single step is let through or it is resumed.
+     */
+    public synchronized void awaitTurn() {
+        while (paused && stepsAllowed == 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (paused) {
+            stepsAllowed--;
+        }
+    }
+
+    /**
+     * Wait as the pacing mode requires after a step has been simulated.
+     *
+     * @param view The view showing the run, or null if there is none.
+     */
+    public void afterStep(SimulatorView view) {
+        switch (mode) {
+            case MAX_THROUGHPUT -> {
+            }
+            case TARGET_RATE -> awaitDeadline();
+            case GUI_SYNCHRONISED -> {
+                if (view != null) {
+                    view.awaitPainted();
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait until the next step is due on the schedule of the target rate.
+     */
+    private void awaitDeadline() {
+        long period = (long) (1e9 / targetRate);
+        long due;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (deadline == 0 || now - deadline > period) {
+                deadline = now; // start a new schedule rather than catch up
+            }
+            deadline += period;
+            due = deadline;
+        }
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/**
+ * How fast a simulation runs its steps.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public enum PacingMode {
+    // As fast as possible, never waiting between steps.
+    MAX_THROUGHPUT("Maximum speed"),
+    // At a steady number of steps per second.
+    TARGET_RATE("Steps per second"),
+    // As fast as the view can show each step.
+    GUI_SYNCHRONISED("Every frame");
+
+    // The name shown to the user.
+    private final String label;
+
+    /**
+     * @param label The name shown to the user.
+     */
+    PacingMode(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
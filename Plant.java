@@ -1,109 +1,553 @@
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
 /**
- * Defines all common variables and methods for plants who grow,
- * which consumers, specifically prey, feed off of.
+ * The plants of the ecosystem, which consumers, specifically prey, feed off of.
+ * Plants neither move nor eat, so rather than being individual animals they are
+ * kept as a dense layer holding one height per field position. The layer is
+ * shared by consecutive states of the field.
+ * <p>
+ * The heights are kept in chunks of positions, each with the number of steps
+ * of growth it has caught up with. Growing the layer only counts the step; a
+ * chunk catches up in one pass when it is next changed, and heights read from
+ * it in between are worked out from the steps it lags behind. A fork of the
+ * layer shares every chunk with it until either one changes the chunk, and
+ * only then copies it.
  *
  * @author Krish Shah
- * @version 1.3
+ * @version 2.0
  */
-public class Plant extends Animal {
+public class Plant {
     // Maximum height a plant can grow to.
-    private static final int MAX_HEIGHT = 500;
+    public static final int MAX_HEIGHT = 500;
     // For random behaviour.
     private static final Random rand = Randomizer.getRandom();
-    // Rate at which plant grows with each step.
+    // Rate at which plants grow with each step.
     private static final int GROWTH_RATE = 5;
-    // Height in meters.
-    private int height;
+    // Chance of a plant reproducing asexually at any valid step.
+    private static final double BREEDING_PROBABILITY = 0.01;
+    // Picks the positions whose plants breed, skipping those that do not.
+    private static final GeometricSampler breeders = new GeometricSampler(BREEDING_PROBABILITY);
+    // Height stored for a position that holds no plant.
+    private static final short NONE = -1;
+    // The number of positions in a chunk is two to this power.
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+    // The dimensions of the layer.
+    private final int depth, width;
+    // Height in meters of the plant at each position, row by row, or NONE, by chunk.
+    private final short[][] chunks;
+    // Whether each chunk belongs to this layer alone, rather than being shared with a fork.
+    private final boolean[] owned;
+    // The number of steps of growth each chunk has caught up with.
+    private final int[] grownTo;
+    // The number of steps the layer has grown.
+    private int growth;
+    // The number of positions holding a plant.
+    private int count;
+    // The Zobrist hash of the positions holding a plant.
+    private long hash;
+    // The number of plants by region, or null if regions are not counted.
+    private FenwickGrid regions;
+    // The number of plants by block at several resolutions, or null if none is kept.
+    private DensityPyramid pyramid;
+    // The summed heights of the plants above and left of each position, one based.
+    private long[] biomass;
+    // Whether the summed heights are up to date.
+    private boolean biomassValid;
+    // The log told of bites, trampled plants and seedlings, or null if none is recording.
+    private EventLog eventLog;
 
     /**
-     * Constructor for the Producers of the ecosystem.
+     * Create an empty plant layer of the given dimensions.
+     *
+     * @param depth The depth of the field.
+     * @param width The width of the field.
      */
-    public Plant(boolean randomHeight, Location location) {
-        super(location);
-        height = 0;
-        if (randomHeight) {
-            height = rand.nextInt(MAX_HEIGHT); // populates with random heights
+    public Plant(int depth, int width) {
+        this.depth = depth;
+        this.width = width;
+        int positions = depth * width;
+        chunks = new short[(positions + CHUNK_MASK) >>> CHUNK_SHIFT][];
+        for (int c = 0; c < chunks.length; c++) {
+            chunks[c] = new short[Math.min(CHUNK_MASK + 1, positions - (c << CHUNK_SHIFT))];
         }
+        owned = new boolean[chunks.length];
+        Arrays.fill(owned, true);
+        grownTo = new int[chunks.length];
+        clear();
     }
 
     /**
-     * Defines the plant's behaviour: growing, breeding, and not moving
+     * Create a layer with the same plants as another, sharing its chunks.
+     */
+    private Plant(Plant original) {
+        depth = original.depth;
+        width = original.width;
+        chunks = original.chunks.clone();
+        owned = new boolean[chunks.length];
+        grownTo = original.grownTo.clone();
+        growth = original.growth;
+        count = original.count;
+        hash = original.hash;
+    }
+
+    /**
+     * Return a layer with the same plants, for a branch of the simulation.
+     * The two layers share their chunks, so the fork costs little, and each
+     * copies a chunk before it first changes it.
      *
-     * @param currentField   The field occupied.
-     * @param nextFieldState The updated field.
-     * @param currentTime    The current time of the environment.
+     * @return The new layer.
      */
-    public void act(Field currentField, Field nextFieldState, int currentTime, boolean isSunny) {
-        incrementHeight(); // height is increased
-        if (isAlive()) {
-            nextFieldState.placeAnimal(this, this.getLocation());
-            giveBirth(nextFieldState, currentTime, isSunny);
-        } else {
-            setDead();
+    public Plant fork() {
+        Plant copy = new Plant(this);
+        Arrays.fill(owned, false);
+        if (regions != null) {
+            copy.enableRegionCounts();
         }
+        if (pyramid != null) {
+            copy.enableDensityPyramid();
+        }
+        return copy;
     }
 
     /**
-     * Defines the plant's behaviour: growing, breeding, and not moving
+     * Grow a new plant at the given location.
      *
-     * @param nextFieldState The updated field.
-     * @param currentTime    The current time of the environment.
+     * @param location     Where to grow the plant.
+     * @param randomHeight If true the plant starts with a random height, else from nothing.
+     */
+    public void plant(Location location, boolean randomHeight) {
+        plant(location, randomHeight ? rand.nextInt(MAX_HEIGHT) : 0); // populates with random heights
+    }
+
+    /**
+     * Grow a plant of the given height at the given location, replacing any there.
+     *
+     * @param location Where to grow the plant.
+     * @param height   The plant's height, from 0 to MAX_HEIGHT.
+     */
+    public void plant(Location location, int height) {
+        plant(location.row(), location.col(), height);
+    }
+
+    /**
+     * Grow a plant of the given height at the given position, replacing any there.
+     *
+     * @param row    The row of the position.
+     * @param col    The column of the position.
+     * @param height The plant's height, from 0 to MAX_HEIGHT.
+     */
+    public void plant(int row, int col, int height) {
+        int index = row * width + col;
+        short[] chunk = writable(index >>> CHUNK_SHIFT);
+        if (chunk[index & CHUNK_MASK] == NONE) {
+            count++;
+            hash ^= Zobrist.plantKey(index);
+            if (regions != null) {
+                regions.add(row, col, 1);
+            }
+            if (pyramid != null) {
+                pyramid.add(row, col, 0, 1);
+            }
+        }
+        chunk[index & CHUNK_MASK] = (short) height;
+        biomassValid = false;
+    }
+
+    /**
+     * Check whether a plant is growing at the given location.
+     *
+     * @param location Where in the field.
+     * @return true if there is a plant at the location.
      */
-    private void giveBirth(Field nextFieldState, int currentTime, boolean isSunny) {
-        List<Location> freeLocations =
-                nextFieldState.getFreeAdjacentLocations(getLocation());
+    public boolean isPlantAt(Location location) {
+        return isPlantAt(indexOf(location));
+    }
 
-        if (freeLocations.isEmpty()) return; // nowhere to move
+    /**
+     * Check whether a plant is growing at the given position.
+     *
+     * @param row The row of the position.
+     * @param col The column of the position.
+     * @return true if there is a plant at the position.
+     */
+    public boolean isPlantAt(int row, int col) {
+        return isPlantAt(row * width + col);
+    }
 
-        if (canBreed(currentTime, isSunny)) {
-            Location location = freeLocations.remove(0);
-            Plant young = new Plant(true, location);
-            // new plant is placed in a free location
-            nextFieldState.placeAnimal(young, location);
+    /**
+     * Mark each position PLANT if a plant grows there and EMPTY if not.
+     *
+     * @param codes The species code of each position, row by row.
+     */
+    void copyCodes(byte[] codes) {
+        byte plant = Species.PLANT.code(), empty = Species.EMPTY.code();
+        for (int c = 0; c < chunks.length; c++) {
+            short[] chunk = chunks[c];
+            int first = c << CHUNK_SHIFT;
+            for (int i = 0; i < chunk.length; i++) {
+                codes[first + i] = chunk[i] != NONE ? plant : empty;
+            }
         }
     }
 
     /**
-     * Allows the plant to grow with each step using a predefined growth rate.
+     * Return the height of the plant at the given position.
+     *
+     * @param row The row of the position.
+     * @param col The column of the position.
+     * @return The plant's height, or -1 if there is no plant there.
+     */
+    public int getHeight(int row, int col) {
+        return heightAt(row * width + col);
+    }
+
+    /**
+     * Return the height a plant reaches after growing for one step.
+     *
+     * @param height The plant's height, or -1 for no plant.
+     * @return The height after growing, or -1 for no plant.
+     */
+    public static int grown(int height) {
+        return height < 0 ? height : Math.min(height + GROWTH_RATE, MAX_HEIGHT);
+    }
+
+    /**
+     * Return the height of the plant at the given location.
+     *
+     * @param location Where in the field.
+     * @return The plant's height, or -1 if there is no plant there.
      */
-    private void incrementHeight() {
-        height += GROWTH_RATE;
-        // cannot grow past the maximum height
-        height = Math.min(height, MAX_HEIGHT);
+    public int getHeight(Location location) {
+        return heightAt(indexOf(location));
     }
 
     /**
-     * Enables a plant to be eaten; they die if they are eaten entirely.
+     * Allows every plant to grow using a predefined growth rate. The step
+     * is only counted here; each chunk catches up when it next changes.
+     */
+    public void grow() {
+        growth++;
+        biomassValid = false;
+    }
+
+    /**
+     * Enables a plant to be eaten; it dies if it is eaten entirely.
      *
-     * @param amount The amount of 'energy' a prey desires to eat off a plant.
-     * @return The actual amount of 'energy' a prey receives after
+     * @param location Where the plant being eaten is.
+     * @param amount   The amount of 'energy' a prey desires to eat off the plant.
+     * @return The actual amount of 'energy' the prey receives.
      */
-    public int eaten(int amount) {
+    public int eaten(Location location, int amount) {
+        int index = indexOf(location);
+        if (!isPlantAt(index)) {
+            return 0;
+        }
+        short[] chunk = writable(index >>> CHUNK_SHIFT);
+        int offset = index & CHUNK_MASK;
+        int height = chunk[offset];
         int foodGiven;
         if (amount >= height) {
-            foodGiven = height;  // The prey should only get what’s available
-            height = 0;          // Plant is fully eaten
-            setDead();           // Mark plant as dead
+            foodGiven = height;       // The prey should only get what's available
+            uproot(index, chunk);     // Plant is fully eaten
         } else {
-            height -= amount;
+            chunk[offset] = (short) (height - amount);
             foodGiven = amount;
         }
+        biomassValid = false;
+        if (eventLog != null) {
+            eventLog.plantEvent(location.row(), location.col(), EventLog.BITE, chunk[offset]);
+        }
         return foodGiven;
     }
 
     /**
-     * True if the plant can breed asexually.
+     * Remove the plant at the given location, if there is one, as when an
+     * animal takes its place.
+     *
+     * @param location Where the plant grows.
+     */
+    public void remove(Location location) {
+        int index = indexOf(location);
+        if (isPlantAt(index)) {
+            uproot(index, writable(index >>> CHUNK_SHIFT));
+            if (eventLog != null) {
+                eventLog.plantEvent(location.row(), location.col(), EventLog.TRAMPLE, NONE);
+            }
+        }
+    }
+
+    /**
+     * Let the plants reproduce asexually into free adjacent locations.
+     * Plants only breed in the daytime and with sunlight energy.
+     *
+     * @param nextFieldState The updated field.
+     * @param currentTime    The current time of the environment.
+     * @param isSunny        The weather condition.
+     */
+    public void breed(Field nextFieldState, int currentTime, boolean isSunny) {
+        if (!Animal.validTime(currentTime) || !isSunny) return;
+        // choose the parents first so that seedlings do not breed in the step they appear;
+        // each position is chosen with the breeding chance, and its plant breeds if there is one
+        List<Location> parents = new ArrayList<>();
+        long positions = (long) depth * width;
+        long position = -1;
+        while (true) {
+            long gap = breeders.nextGap(rand);
+            if (gap >= positions - 1 - position) {
+                break;
+            }
+            position += gap + 1;
+            int i = (int) position;
+            if (isPlantAt(i)) {
+                parents.add(new Location(i / width, i % width));
+            }
+        }
+        for (Location parent : parents) {
+            // new plant is placed in the first free location no plant grows in
+            for (Location free : nextFieldState.getFreeAdjacentLocations(parent)) {
+                if (!isPlantAt(free)) {
+                    plant(free, true);
+                    if (eventLog != null) {
+                        eventLog.plantEvent(free.row(), free.col(), EventLog.SEED, getHeight(free));
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Tell a log of the bites, trampled plants and seedlings from now on.
      *
-     * @param currentTime The current time of the environment to check if plant is 'awake'.
-     * @param isSunny     The plant can only breed with sunlight energy
-     * @return True if the plant beats the odds and is 'awake'.
+     * @param eventLog The log, or null to tell none.
      */
-    private boolean canBreed(int currentTime, boolean isSunny) {
-        return validTime(currentTime) && rand.nextDouble() < 0.01 && isSunny;
-        // 1% chance of reproducing asexually
+    void setEventLog(EventLog eventLog) {
+        this.eventLog = eventLog;
     }
 
+    /**
+     * Return the number of plants in the layer.
+     *
+     * @return The number of plants.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Keep the number of plants in every region up to date from now on,
+     * so that counting them over a rectangle does not scan it.
+     */
+    public void enableRegionCounts() {
+        if (regions == null) {
+            regions = new FenwickGrid(depth, width);
+            for (int i = 0; i < depth * width; i++) {
+                if (isPlantAt(i)) {
+                    regions.add(i / width, i % width, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Keep a density pyramid of the plants from now on, with a single kind.
+     */
+    public void enableDensityPyramid() {
+        if (pyramid == null) {
+            pyramid = new DensityPyramid(depth, width, 1);
+            for (int i = 0; i < depth * width; i++) {
+                if (isPlantAt(i)) {
+                    pyramid.add(i / width, i % width, 0, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The density pyramid of the plants, or null if none is kept.
+     */
+    public DensityPyramid getDensityPyramid() {
+        return pyramid;
+    }
+
+    /**
+     * Return the number of plants in a rectangle of positions. The bounds
+     * are inclusive and are clipped to the layer.
+     *
+     * @param top    The first row.
+     * @param left   The first column.
+     * @param bottom The last row.
+     * @param right  The last column.
+     * @return The number of plants in the rectangle.
+     */
+    public int countInRegion(int top, int left, int bottom, int right) {
+        if (regions != null) {
+            return regions.sum(top, left, bottom, right);
+        }
+        int plants = 0;
+        for (int row = Math.max(top, 0); row <= Math.min(bottom, depth - 1); row++) {
+            for (int col = Math.max(left, 0); col <= Math.min(right, width - 1); col++) {
+                if (isPlantAt(row * width + col)) {
+                    plants++;
+                }
+            }
+        }
+        return plants;
+    }
+
+    /**
+     * Return the total height of the plants in a rectangle of positions.
+     * Every plant grows each step, so rather than being kept up to date the
+     * summed heights are rebuilt by the first query after the plants change,
+     * and answer every further query in constant time. The bounds are
+     * inclusive and are clipped to the layer.
+     *
+     * @param top    The first row.
+     * @param left   The first column.
+     * @param bottom The last row.
+     * @param right  The last column.
+     * @return The plant biomass in the rectangle.
+     */
+    public long getBiomass(int top, int left, int bottom, int right) {
+        top = Math.max(top, 0);
+        left = Math.max(left, 0);
+        bottom = Math.min(bottom, depth - 1);
+        right = Math.min(right, width - 1);
+        if (top > bottom || left > right) {
+            return 0;
+        }
+        if (!biomassValid) {
+            sumHeights();
+        }
+        int stride = width + 1;
+        return biomass[(bottom + 1) * stride + right + 1] - biomass[top * stride + right + 1]
+                - biomass[(bottom + 1) * stride + left] + biomass[top * stride + left];
+    }
+
+    /**
+     * Return the Zobrist hash of where the plants are. Heights are not included.
+     *
+     * @return The hash of the plant positions.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Remove every plant.
+     */
+    public void clear() {
+        for (int c = 0; c < chunks.length; c++) {
+            if (!owned[c]) {
+                chunks[c] = new short[chunks[c].length];
+                owned[c] = true;
+            }
+            Arrays.fill(chunks[c], NONE);
+            grownTo[c] = growth;
+        }
+        count = 0;
+        hash = 0;
+        if (regions != null) {
+            regions.clear();
+        }
+        if (pyramid != null) {
+            pyramid.clear();
+        }
+        biomassValid = false;
+    }
+
+    /**
+     * Rebuild the summed heights of the plants above and left of each position.
+     */
+    private void sumHeights() {
+        int stride = width + 1;
+        if (biomass == null) {
+            biomass = new long[(depth + 1) * stride];
+        }
+        for (int row = 0; row < depth; row++) {
+            long rowSum = 0;
+            for (int col = 0; col < width; col++) {
+                rowSum += Math.max(heightAt(row * width + col), 0);
+                biomass[(row + 1) * stride + col + 1] = biomass[row * stride + col + 1] + rowSum;
+            }
+        }
+        biomassValid = true;
+    }
+
+    /**
+     * Check whether a plant is growing at a position counted row by row.
+     */
+    private boolean isPlantAt(int index) {
+        return chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK] != NONE;
+    }
+
+    /**
+     * Return the height of the plant at a position counted row by row,
+     * with the growth its chunk has yet to catch up with.
+     */
+    private int heightAt(int index) {
+        int c = index >>> CHUNK_SHIFT;
+        int height = chunks[c][index & CHUNK_MASK];
+        int steps = growth - grownTo[c];
+        if (height < 0 || steps == 0) {
+            return height;
+        }
+        return Math.min(height + GROWTH_RATE * Math.min(steps, MAX_HEIGHT), MAX_HEIGHT);
+    }
+
+    /**
+     * Return a chunk that may be changed: copied first if it is shared with
+     * a fork, and grown to the current step. The loop is a straight pass over
+     * the primitive array without calls or object access, so the JIT compiler
+     * can vectorise it.
+     */
+    private short[] writable(int c) {
+        short[] chunk = chunks[c];
+        if (!owned[c]) {
+            chunk = chunk.clone();
+            chunks[c] = chunk;
+            owned[c] = true;
+        }
+        int steps = growth - grownTo[c];
+        if (steps > 0) {
+            int amount = GROWTH_RATE * Math.min(steps, MAX_HEIGHT);
+            for (int i = 0; i < chunk.length; i++) {
+                int height = chunk[i];
+                // empty positions stay empty; plants cannot grow past the maximum height
+                chunk[i] = (short) (height < 0 ? height : Math.min(height + amount, MAX_HEIGHT));
+            }
+            grownTo[c] = growth;
+        }
+        return chunk;
+    }
+
+    /**
+     * Empty a position of a chunk that may be changed, keeping the count,
+     * hash and region counts up to date.
+     */
+    private void uproot(int index, short[] chunk) {
+        chunk[index & CHUNK_MASK] = NONE;
+        count--;
+        hash ^= Zobrist.plantKey(index);
+        int row = index / width, col = index % width;
+        if (regions != null) {
+            regions.add(row, col, -1);
+        }
+        if (pyramid != null) {
+            pyramid.add(row, col, 0, -1);
+        }
+        biomassValid = false;
+    }
+
+    /**
+     * Return the position of a location counted row by row.
+     */
+    private int indexOf(Location location) {
+        return location.row() * width + location.col();
+    }
 }
@@ -0,0 +1,14 @@
+/**
+ * How a simulation fills its field with plants and animals at the start.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public enum PopulationMode {
+    // Position after position from the one random stream, as every seed has always given.
+    SEQUENTIAL,
+    // Blocks of rows in parallel, each from a stream of its own, skipping
+    // straight to the next occupied position. The field depends on the seed
+    // but not on the number of threads.
+    BLOCKS
+}
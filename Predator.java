@@ -34,10 +34,9 @@ public abstract class Predator extends Consumer {
      * @param currentTime    The current time of the environment.
      */
     public void act(Field currentField, Field nextFieldState, int currentTime, boolean isSunny) {
-        incrementAge();
         incrementHunger();
         if (isAlive()) {
-            if (!validTime(currentTime) || !isSunny) { // at night or if its cloudy/rainy
+            if (isDormant(currentTime, isSunny)) { // at night or if its cloudy/rainy
                 nextFieldState.placeAnimal(this, this.getLocation()); // stay in the same location.
                 return;
             }
@@ -54,11 +53,19 @@ public abstract class Predator extends Consumer {
                 setLocation(nextLocation);
                 nextFieldState.placeAnimal(this, nextLocation);
             } else {
-                setDead();
+                setDead(DeathCause.OVERCROWDING);
             }
         }
     }
 
+    /**
+     * Predators rest at night and when it is cloudy or rainy.
+     */
+    @Override
+    protected boolean isDormant(int currentTime, boolean isSunny) {
+        return !validTime(currentTime) || !isSunny;
+    }
+
     /**
      * Searches for prey in adjacent locations.
      *
@@ -73,20 +80,30 @@ public abstract class Predator extends Consumer {
         while (foodLocation == null && it.hasNext()) {
             Location loc = it.next();
             Animal animal = field.getAnimalAt(loc);
-            if (animal instanceof Iguana iguana && iguana.isAlive()) {
-                iguana.setDead();
-                foodLevel = IGUANA_FOOD_VALUE;
-                foodLocation = loc;
-            } else if (animal instanceof Manatee manatee && manatee.isAlive()) {
-                manatee.setDead();
-                foodLevel = MANATEE_FOOD_VALUE;
-                foodLocation = loc;
-            } else if (animal instanceof Turtle turtle && turtle.isAlive()) {
-                turtle.setDead();
-                foodLevel = TURTLE_FOOD_VALUE;
+            int foodValue = foodValue(animal);
+            if (foodValue > 0 && animal.isAlive()) {
+                animal.setDead(DeathCause.EATEN);
+                foodLevel = foodValue;
                 foodLocation = loc;
             }
         }
         return foodLocation;
     }
-}
\ No newline at end of file
+
+    /**
+     * Return the energy gained by eating an animal.
+     *
+     * @param animal The animal, or null.
+     * @return The energy it gives, or 0 if the predator does not eat it.
+     */
+    protected int foodValue(Animal animal) {
+        if (animal instanceof Iguana) {
+            return IGUANA_FOOD_VALUE;
+        } else if (animal instanceof Manatee) {
+            return MANATEE_FOOD_VALUE;
+        } else if (animal instanceof Turtle) {
+            return TURTLE_FOOD_VALUE;
+        }
+        return 0;
+    }
+}
@@ -27,13 +27,14 @@ public abstract class Prey extends Consumer {
      */
     protected Location findFood(Field field) {
         List<Location> adjacent = field.getAdjacentLocations(getLocation());
+        Plant plants = field.getPlants();
         Iterator<Location> it = adjacent.iterator();
         Location foodLocation = null;
         while (foodLocation == null && it.hasNext()) {
             Location loc = it.next();
-            Animal animal = field.getAnimalAt(loc);
-            if (animal instanceof Plant plant && plant.isAlive()) {
-                foodLevel = plant.eaten(PLANT_BITE);
+            // the prey moves onto the plant it bites, taking its place
+            if (plants.isPlantAt(loc)) {
+                foodLevel = plants.eaten(loc, PLANT_BITE);
                 foodLocation = loc;
             }
         }
@@ -51,10 +52,9 @@ public abstract class Prey extends Consumer {
      */
     @Override
     public void act(Field currentField, Field nextFieldState, int currentTime, boolean isSunny) {
-        incrementAge();
         incrementHunger();
         if (isAlive()) {
-            if (!validTime(currentTime)) { // does not have any activity at night
+            if (isDormant(currentTime, isSunny)) { // does not have any activity at night
                 nextFieldState.placeAnimal(this, this.getLocation()); // stays in same location
                 return; // nothing else happens - does not move, breed, eat/
             }
@@ -77,7 +77,7 @@ public abstract class Prey extends Consumer {
                 nextFieldState.placeAnimal(this, nextLocation);
             } else {
                 // Overcrowding.
-                setDead();
+                setDead(DeathCause.OVERCROWDING);
             }
         }
     }
@@ -4,15 +4,22 @@ import java.util.Random;
  * Provide control over the randomization of the simulation. By using the shared, fixed-seed
  * randomizer, repeated runs will perform exactly the same (which helps with testing). Set
  * 'useShared' to false to get different random behaviour every time.
+ * <p>
+ * The shared generator hands each thread a sequence of its own, so several
+ * simulations can run at once on different threads, each reproducible from
+ * the seed its thread was given.
  *
- * @author David J. Barnes and Michael Kölling
- * @version 7.0
+ * @author David J. Barnes, Michael Kölling and Krish Shah
+ * @version 7.1
  */
 public class Randomizer {
     // The default seed for control of randomization.
     private static final int SEED = 1111;
+    // The generator of each thread, and the seed it is reset to.
+    private static final ThreadLocal<Random> generators = ThreadLocal.withInitial(() -> new Random(SEED));
+    private static final ThreadLocal<long[]> seeds = ThreadLocal.withInitial(() -> new long[]{SEED});
     // A shared Random object, if required.
-    private static final Random rand = new Random(SEED);
+    private static final Random rand = new PerThreadRandom();
     // Determine whether a shared random generator is to be provided.
     private static final boolean useShared = true;
 
@@ -42,7 +49,97 @@ public class Randomizer {
      */
     public static void reset() {
         if (useShared) {
-            rand.setSeed(SEED);
+            generators.get().setSeed(seeds.get()[0]);
+        }
+    }
+
+    /**
+     * Seed the shared generator for the calling thread, and reset it to that
+     * seed from now on. Other threads are not affected.
+     *
+     * @param seed The new seed.
+     */
+    public static void setSeed(long seed) {
+        seeds.get()[0] = seed;
+        reset();
+    }
+
+    /**
+     * Make the shared generator draw from the given generator on the calling
+     * thread until another is set, as while a branch of a simulation steps.
+     *
+     * @param generator The generator to draw from.
+     * @return The generator the thread drew from until now.
+     */
+    static Random use(Random generator) {
+        Random previous = generators.get();
+        generators.set(generator);
+        return previous;
+    }
+
+    /**
+     * A generator that passes every call on to the generator of the calling thread.
+     */
+    private static class PerThreadRandom extends Random {
+        // The version of its serialized form.
+        private static final long serialVersionUID = 1L;
+        // false while Random's constructor runs, which seeds with the clock
+        private final boolean constructed;
+
+        private PerThreadRandom() {
+            constructed = true;
+        }
+
+        @Override
+        public void setSeed(long seed) {
+            if (constructed) {
+                generators.get().setSeed(seed);
+            }
+        }
+
+        @Override
+        protected int next(int bits) {
+            return (int) (generators.get().nextLong() >>> (64 - bits));
+        }
+
+        @Override
+        public void nextBytes(byte[] bytes) {
+            generators.get().nextBytes(bytes);
+        }
+
+        @Override
+        public int nextInt() {
+            return generators.get().nextInt();
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            return generators.get().nextInt(bound);
+        }
+
+        @Override
+        public long nextLong() {
+            return generators.get().nextLong();
+        }
+
+        @Override
+        public boolean nextBoolean() {
+            return generators.get().nextBoolean();
+        }
+
+        @Override
+        public float nextFloat() {
+            return generators.get().nextFloat();
+        }
+
+        @Override
+        public double nextDouble() {
+            return generators.get().nextDouble();
+        }
+
+        @Override
+        public double nextGaussian() {
+            return generators.get().nextGaussian();
         }
     }
 }
@@ -0,0 +1,101 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records a run to an event log, or plays one back in the simulator's window
+ * without simulating it again, and without the code or seed that made it:
+ * <pre>
+ *     java Replay --record log-file steps [depth width seed] [--events]
+ *     java Replay log-file [first step] [steps per second]
+ * </pre>
+ * A recording holds only the frames the view shows unless --events asks for
+ * every event of the run, which is several times larger.
+ * A speed of 0 plays the steps as fast as they can be drawn. When playback
+ * ends the number of steps drawn per second is printed.
+ *
+ * @author Krish Shah
+ * @version 3.0
+ */
+public class Replay {
+    // The default playback speed.
+    private static final int DEFAULT_STEPS_PER_SECOND = 10;
+    // The size of field recorded by default, as the simulator's.
+    private static final int DEFAULT_DEPTH = 85, DEFAULT_WIDTH = 130;
+
+    /**
+     * Record or play a log.
+     *
+     * @param args As in the usage above.
+     * @throws IOException If the log cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        boolean events = args.length > 0 && args[args.length - 1].equals("--events");
+        if (events) {
+            args = Arrays.copyOf(args, args.length - 1);
+        }
+        if (args.length == 0 || args[0].equals("--record") && args.length < 3) {
+            System.out.println("Usage: java Replay --record log-file steps [depth width seed] [--events]");
+            System.out.println("       java Replay log-file [first step] [steps per second]");
+        } else if (args[0].equals("--record")) {
+            int depth = args.length > 4 ? Integer.parseInt(args[3]) : DEFAULT_DEPTH;
+            int width = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_WIDTH;
+            if (args.length > 5) {
+                Randomizer.setSeed(Long.parseLong(args[5]));
+            }
+            record(args[1], Integer.parseInt(args[2]), depth, width,
+                    events ? LogContent.EVENTS : LogContent.FRAMES);
+        } else {
+            int first = args.length > 1 ? Integer.parseInt(args[1]) : -1;
+            play(args[0], first, args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_STEPS_PER_SECOND);
+        }
+    }
+
+    /**
+     * Run a headless simulation for a number of steps, recording every step.
+     */
+    private static void record(String fileName, int steps, int depth, int width, LogContent content)
+            throws IOException {
+        Simulator simulator = new Simulator(depth, width, false);
+        EventLog log = new EventLog(fileName, depth, width, content);
+        try (log) {
+            simulator.setEventLog(log);
+            simulator.simulate(steps);
+            simulator.setEventLog(null);
+        }
+        System.out.printf("%d steps: %d bytes, %d as raw frames (%.1f%%)%n", steps + 1, log.getWrittenBytes(),
+                log.getRawBytes(), 100.0 * log.getWrittenBytes() / log.getRawBytes());
+    }
+
+    /**
+     * Show the steps of a log from the given step, or the first, to the end.
+     */
+    private static void play(String fileName, int first, int stepsPerSecond) throws IOException {
+        try (EventLogReader log = new EventLogReader(fileName)) {
+            if (first >= 0) {
+                log.seek(first);
+            } else {
+                log.next();
+            }
+            SimulatorView view = new SimulatorView(log.getDepth(), log.getWidth());
+            long interval = stepsPerSecond > 0 ? 1_000_000_000L / stepsPerSecond : 0;
+            long started = System.nanoTime();
+            long deadline = started;
+            int shown = 0;
+            do {
+                int time = log.getTime();
+                view.showStatus(log.getStep(), log, Simulator.displayTime(time), time,
+                        Simulator.displayWeather(time, log.isSunny()));
+                view.awaitPainted();
+                shown++;
+                deadline += interval;
+                LockSupport.parkNanos(deadline - System.nanoTime());
+                if (Thread.interrupted()) {
+                    return;
+                }
+            } while (log.next());
+            double seconds = (System.nanoTime() - started) / 1e9;
+            System.out.printf("%d steps in %.2f s: %.0f steps per second%n", shown, seconds, shown / seconds);
+        }
+    }
+}
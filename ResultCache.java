@@ -0,0 +1,86 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * The results of finished simulation jobs, kept on disk so that they survive
+ * restarts of the job server. Each result is a file named by the SHA-256 hash
+ * of the job's description, so a job asked for again is answered by reading
+ * one file. A result is written to a temporary file and moved into place, so
+ * a reader never sees half of one.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public class ResultCache {
+    // The extension of the result files.
+    private static final String SUFFIX = ".txt";
+
+    // The directory the results are kept in.
+    private final Path directory;
+
+    /**
+     * Create a cache keeping its results in the given directory, which is
+     * created if it does not exist.
+     *
+     * @param directory The directory of the cache.
+     * @throws IOException If the directory cannot be created.
+     */
+    public ResultCache(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * Return the key a job is cached under.
+     *
+     * @param description A description of the job that determines its result.
+     * @return The key, in hexadecimal.
+     */
+    public static String keyOf(String description) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(description.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Return a cached result.
+     *
+     * @param key The key of the job.
+     * @return The result, or null if it is not cached.
+     * @throws IOException If the result cannot be read.
+     */
+    public String get(String key) throws IOException {
+        try {
+            return Files.readString(directory.resolve(key + SUFFIX), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Store a result, replacing any kept under the same key.
+     *
+     * @param key    The key of the job.
+     * @param result The result.
+     * @throws IOException If the result cannot be written.
+     */
+    public void put(String key, String result) throws IOException {
+        Path temporary = Files.createTempFile(directory, key, ".tmp");
+        try {
+            Files.writeString(temporary, result, StandardCharsets.UTF_8);
+            Files.move(temporary, directory.resolve(key + SUFFIX), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
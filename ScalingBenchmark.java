@@ -0,0 +1,224 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures how the whole engine scales with the size of the world and the
+ * number of threads, and prints the results as JSON so that runs on different
+ * commits can be compared.
+ * <p>
+ * The worlds are canonical fixtures: saved WorldFiles of fields populated
+ * from the fixed seed at the default densities, 130x85, 1000x1000, 4000x4000
+ * and 10000x10000 unless others are asked for. Loading a fixture is not timed,
+ * nor is populating one. Each world is run with the two-phase update on each
+ * number of threads, first for some warm-up steps and then for the measured
+ * steps, and the report gives steps and animal updates per second, the median
+ * and 99th percentile step time, the bytes allocated per step by all threads
+ * and the peak heap in use.
+ * <pre>
+ *     java ScalingBenchmark [--fixtures DIR] [--generate] [--worlds 130x85,1000x1000]
+ *                           [--threads 1,2,4] [--warmup 20] [--steps 50]
+ *                           [--mode intent_commit|sequential] [--populate sequential|blocks]
+ *                           [--label TEXT] [--out FILE]
+ * </pre>
+ * Fixtures that are missing are made with --generate and otherwise skipped.
+ * Populating them in blocks is much quicker for the largest worlds, but gives
+ * different worlds, which are kept in files of their own.
+ * The largest worlds need a large heap, e.g. -Xmx24g for 10000x10000.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public class ScalingBenchmark {
+    // The version of the report's layout, to be changed when its fields change.
+    private static final int SCHEMA = 1;
+    // The seed the canonical worlds are populated from.
+    private static final long FIXTURE_SEED = 1111;
+    // The canonical worlds, width by depth.
+    private static final String CANONICAL_WORLDS = "130x85,1000x1000,4000x4000,10000x10000";
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args The options, as described above.
+     * @throws IOException If a fixture cannot be read or written, or the report written.
+     */
+    public static void main(String[] args) throws IOException {
+        File fixtures = new File("fixtures");
+        boolean generate = false;
+        String worlds = CANONICAL_WORLDS;
+        int[] threadCounts = defaultThreadCounts();
+        int warmUp = 20;
+        int measured = 50;
+        UpdateMode mode = UpdateMode.INTENT_COMMIT;
+        PopulationMode populationMode = PopulationMode.SEQUENTIAL;
+        String label = "";
+        PrintStream out = System.out;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--fixtures" -> fixtures = new File(args[++i]);
+                case "--generate" -> generate = true;
+                case "--worlds" -> worlds = args[++i];
+                case "--threads" -> threadCounts = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                case "--warmup" -> warmUp = Integer.parseInt(args[++i]);
+                case "--steps" -> measured = Integer.parseInt(args[++i]);
+                case "--mode" -> mode = UpdateMode.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                case "--populate" -> populationMode = PopulationMode.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                case "--label" -> label = args[++i];
+                case "--out" -> out = new PrintStream(args[++i], "UTF-8");
+                default -> throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+
+        List<String> results = new ArrayList<>();
+        for (String world : worlds.split(",")) {
+            String[] size = world.split("x");
+            int width = Integer.parseInt(size[0]);
+            int depth = Integer.parseInt(size[1]);
+            String populated = populationMode == PopulationMode.BLOCKS ? "-blocks" : "";
+            File fixture = new File(fixtures, "world-" + width + "x" + depth + "-seed" + FIXTURE_SEED + populated + ".bin");
+            if (!fixture.exists()) {
+                if (!generate) {
+                    System.err.println("skipping " + world + ": no fixture " + fixture + " (use --generate)");
+                    continue;
+                }
+                generate(fixture, depth, width, populationMode);
+            }
+            for (int threads : threadCounts) {
+                System.err.println("running " + world + " on " + threads + " threads");
+                results.add(run(fixture, world, mode, threads, warmUp, measured));
+            }
+        }
+
+        out.println("{");
+        out.println("  \"schema\": " + SCHEMA + ",");
+        out.println("  \"label\": " + quote(label) + ",");
+        out.println("  \"java\": " + quote(System.getProperty("java.version")) + ",");
+        out.println("  \"processors\": " + Runtime.getRuntime().availableProcessors() + ",");
+        out.println("  \"maxHeapBytes\": " + Runtime.getRuntime().maxMemory() + ",");
+        out.println("  \"mode\": " + quote(mode.name().toLowerCase(Locale.ROOT)) + ",");
+        out.println("  \"warmupSteps\": " + warmUp + ",");
+        out.println("  \"measuredSteps\": " + measured + ",");
+        out.println("  \"results\": [");
+        for (int i = 0; i < results.size(); i++) {
+            out.println("    " + results.get(i) + (i + 1 < results.size() ? "," : ""));
+        }
+        out.println("  ]");
+        out.println("}");
+        out.flush();
+    }
+
+    /**
+     * Populate a canonical world from the fixed seed and save it.
+     */
+    private static void generate(File fixture, int depth, int width, PopulationMode populationMode)
+            throws IOException {
+        System.err.println("generating " + fixture);
+        File directory = fixture.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("cannot create " + directory);
+        }
+        Randomizer.setSeed(FIXTURE_SEED);
+        WorldFile.write(fixture.getPath(), new Simulator(depth, width, false, populationMode));
+    }
+
+    /**
+     * Run one world on a number of threads and return its result as a JSON object.
+     */
+    private static String run(File fixture, String world, UpdateMode mode, int threads, int warmUp, int measured)
+            throws IOException {
+        Simulator simulator = new Simulator(new WorldFile(fixture.getPath()), false);
+        simulator.setUpdateMode(mode, threads);
+        try {
+            for (int n = 0; n < warmUp; n++) {
+                simulator.simulateOneStep();
+            }
+            System.gc();
+            List<MemoryPoolMXBean> heap = new ArrayList<>();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    pool.resetPeakUsage();
+                    heap.add(pool);
+                }
+            }
+            long allocatedBefore = allocatedBytes();
+            long[] latencies = new long[measured];
+            long updates = 0;
+            long total = 0;
+            for (int n = 0; n < measured; n++) {
+                updates += simulator.getField().getAnimals().size();
+                long start = System.nanoTime();
+                simulator.simulateOneStep();
+                latencies[n] = System.nanoTime() - start;
+                total += latencies[n];
+            }
+            long allocated = allocatedBytes() - allocatedBefore;
+            long peakHeap = 0;
+            for (MemoryPoolMXBean pool : heap) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+            Arrays.sort(latencies);
+            double seconds = total / 1e9;
+            return String.format(Locale.ROOT, "{\"world\": %s, \"threads\": %d, \"animals\": %d, "
+                            + "\"stepsPerSec\": %.3f, \"entityUpdatesPerSec\": %.1f, "
+                            + "\"p50StepMs\": %.3f, \"p99StepMs\": %.3f, "
+                            + "\"allocBytesPerStep\": %d, \"peakHeapBytes\": %d}",
+                    quote(world), threads, simulator.getField().getAnimals().size(),
+                    measured / seconds, updates / seconds,
+                    percentile(latencies, 50) / 1e6, percentile(latencies, 99) / 1e6,
+                    allocated / measured, peakHeap);
+        } finally {
+            simulator.setUpdateMode(UpdateMode.SEQUENTIAL);
+        }
+    }
+
+    /**
+     * Return the number of threads to try by default: powers of two up to the number of processors.
+     */
+    private static int[] defaultThreadCounts() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        List<Integer> counts = new ArrayList<>();
+        for (int threads = 1; threads < processors; threads *= 2) {
+            counts.add(threads);
+        }
+        counts.add(processors);
+        return counts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Return the bytes allocated so far by every live thread.
+     */
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (allocated > 0) {
+                total += allocated;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Return a percentile of sorted values by the nearest rank.
+     */
+    private static long percentile(long[] sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(rank - 1, 0)];
+    }
+
+    /**
+     * Return a string as a JSON string literal.
+     */
+    private static String quote(String text) {
+        return "\"" + text.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
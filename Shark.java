@@ -28,16 +28,42 @@ public class Shark extends Predator {
         }
     }
 
+    /**
+     * Turn a dead Shark into a newborn, as created by the constructor.
+     *
+     * @param location The location within the field.
+     */
+    @Override
+    protected void reborn(Location location) {
+        reset(location, rand.nextInt(11) + 10);
+    }
+
     @Override
     public String toString() {
         return "Shark{" +
-                "age=" + age +
+                "age=" + getAge() +
                 ", alive=" + isAlive() +
                 ", location=" + getLocation() +
                 ", foodLevel=" + foodLevel +
                 '}';
     }
 
+    /**
+     * Create a newborn Shark, reusing a dead one if there is one free.
+     *
+     * @param nextFieldState The updated field.
+     * @param location       The newborn's location.
+     * @return The newborn.
+     */
+    @Override
+    protected Shark newborn(Field nextFieldState, Location location) {
+        Shark young = nextFieldState.getLifecycle().reuse(Shark.class, location);
+        if (young == null) {
+            young = new Shark(false, location);
+        }
+        return young;
+    }
+
     /**
      * Check whether this Shark is to give birth at this step.
      * New births will be made into free adjacent locations.
@@ -64,8 +90,7 @@ public class Shark extends Predator {
             // based on number of males in vicinity or max number of births possible
             for (int b = 0; b < maleCount && b < MAX_LITTER_SIZE && !freeLocations.isEmpty(); b++) {
                 Location loc = freeLocations.remove(0);
-                Shark young = new Shark(false, loc);
-                nextFieldState.placeAnimal(young, loc);
+                nextFieldState.placeAnimal(newborn(nextFieldState, loc), loc);
             }
         }
     }
@@ -0,0 +1,122 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder events emitted by the simulator. Recording them can be
+ * switched on with the usual JFR options, e.g. -XX:StartFlightRecording.
+ * While they are disabled the events are never filled in or committed.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public class SimulationEvents {
+    // The category all simulation events are listed under.
+    private static final String CATEGORY = "Predator-Prey Simulation";
+
+    /**
+     * Covers one whole step of the simulation.
+     */
+    @Name("simulation.Step")
+    @Label("Simulation Step")
+    @Category(CATEGORY)
+    @Description("One step of the simulation, from start to end")
+    public static class StepEvent extends Event {
+        @Label("Step")
+        public int step;
+
+        @Label("Time of Day")
+        public int time;
+
+        @Label("Sunny")
+        public boolean sunny;
+
+        @Label("Animals")
+        public int animals;
+    }
+
+    /**
+     * Covers one phase of a step, such as moving the active animals.
+     */
+    @Name("simulation.Phase")
+    @Label("Simulation Phase")
+    @Category(CATEGORY)
+    @Description("One phase of a simulation step")
+    public static class PhaseEvent extends Event {
+        @Label("Step")
+        public int step;
+
+        @Label("Phase")
+        public String phase;
+
+        /**
+         * Finish timing the phase and commit it if it is being recorded.
+         *
+         * @param step  The current step.
+         * @param phase The name of the phase.
+         */
+        public void finish(int step, String phase) {
+            end();
+            if (shouldCommit()) {
+                this.step = step;
+                this.phase = phase;
+                commit();
+            }
+        }
+    }
+
+    /**
+     * A snapshot of the population at the end of a step.
+     */
+    @Name("simulation.Population")
+    @Label("Population")
+    @Category(CATEGORY)
+    @Description("The number of each species in the field at the end of a step")
+    public static class PopulationEvent extends Event {
+        @Label("Step")
+        public int step;
+
+        @Label("Plants")
+        public int plants;
+
+        @Label("Turtles")
+        public int turtles;
+
+        @Label("Iguanas")
+        public int iguanas;
+
+        @Label("Manatees")
+        public int manatees;
+
+        @Label("Sharks")
+        public int sharks;
+
+        @Label("Orcas")
+        public int orcas;
+    }
+
+    /**
+     * Marks a step in which a large share of the animals died of one cause,
+     * such as a wave of disease among the turtles.
+     */
+    @Name("simulation.MassDeath")
+    @Label("Mass Death")
+    @Category(CATEGORY)
+    @Description("A step in which a large share of the animals died of the same cause")
+    public static class MassDeathEvent extends Event {
+        @Label("Step")
+        public int step;
+
+        @Label("Cause")
+        public String cause;
+
+        @Label("Deaths")
+        public int deaths;
+
+        @Label("Population")
+        @Description("The number of animals at the start of the step")
+        public int population;
+    }
+}
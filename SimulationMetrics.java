@@ -0,0 +1,211 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Live telemetry of a running simulation. The stepping thread is the only
+ * writer and publishes each value through an atomic variable, so another
+ * thread can read the metrics at any time without taking a lock or making
+ * the simulation wait.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public class SimulationMetrics {
+    // The upper bounds of the step latency buckets, in seconds.
+    static final double[] LATENCY_BUCKETS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1.0};
+    // The weight given to the latest step in the smoothed step rate.
+    private static final double RATE_SMOOTHING = 0.2;
+
+    // The number of steps simulated.
+    private final AtomicLong steps = new AtomicLong();
+    // The number of steps in each latency bucket, the last one unbounded.
+    private final AtomicLongArray latencyCounts = new AtomicLongArray(LATENCY_BUCKETS.length + 1);
+    // The total time spent stepping, in nanoseconds.
+    private final AtomicLong latencySum = new AtomicLong();
+    // The smoothed number of steps per second, as the bits of a double.
+    private final AtomicLong stepRate = new AtomicLong(Double.doubleToLongBits(0));
+    // The population of each species after the latest step.
+    private final AtomicLongArray populations = new AtomicLongArray(Species.values().length);
+    // The births since the simulation started.
+    private final AtomicLong births = new AtomicLong();
+    // The deaths since the simulation started, by cause.
+    private final AtomicLongArray deaths = new AtomicLongArray(DeathCause.values().length);
+    // The number of animals carrying a disease after the latest step.
+    private final AtomicLong infected = new AtomicLong();
+    // The infections since the simulation started, and how many were caught from another animal.
+    private final AtomicLong infections = new AtomicLong();
+    private final AtomicLong transmissions = new AtomicLong();
+    // The current step and time of day.
+    private final AtomicLong step = new AtomicLong();
+    private final AtomicLong time = new AtomicLong();
+    // When the previous step ended, or 0 before the first one.
+    private long previousEnd;
+
+    /**
+     * Record a step that has just been simulated.
+     *
+     * @param aStep   The step.
+     * @param aTime   The time of day at that step.
+     * @param nanos   How long the step took, in nanoseconds.
+     * @param field   The field after the step.
+     */
+    public void recordStep(int aStep, int aTime, long nanos, Field field) {
+        steps.incrementAndGet();
+        latencyCounts.incrementAndGet(bucketOf(nanos / 1e9));
+        latencySum.addAndGet(nanos);
+
+        long end = System.nanoTime();
+        if (previousEnd != 0 && end > previousEnd) {
+            double rate = 1e9 / (end - previousEnd);
+            double smoothed = Double.longBitsToDouble(stepRate.get());
+            if (smoothed > 0) {
+                rate = smoothed + RATE_SMOOTHING * (rate - smoothed);
+            }
+            stepRate.set(Double.doubleToLongBits(rate));
+        }
+        previousEnd = end;
+
+        for (Species species : Species.values()) {
+            if (species != Species.EMPTY) {
+                populations.set(species.ordinal(), field.getPopulation(species));
+            }
+        }
+        Lifecycle lifecycle = field.getLifecycle();
+        births.addAndGet(lifecycle.getBirths());
+        for (DeathCause cause : DeathCause.values()) {
+            deaths.addAndGet(cause.ordinal(), lifecycle.getDeaths(cause));
+        }
+        DiseaseIndex disease = lifecycle.getDiseaseIndex();
+        infected.set(disease.getInfectedCount());
+        infections.addAndGet(disease.getNewInfections());
+        transmissions.addAndGet(disease.getTransmissions());
+        step.set(aStep);
+        time.set(aTime);
+    }
+
+    /**
+     * Record the state of a field that has just been populated, before any step.
+     *
+     * @param field The populated field.
+     */
+    public void reset(Field field) {
+        previousEnd = 0;
+        stepRate.set(Double.doubleToLongBits(0));
+        for (Species species : Species.values()) {
+            if (species != Species.EMPTY) {
+                populations.set(species.ordinal(), field.getPopulation(species));
+            }
+        }
+        infected.set(field.getLifecycle().getDiseaseIndex().getInfectedCount());
+        step.set(0);
+    }
+
+    /**
+     * @return The number of steps simulated.
+     */
+    public long getSteps() {
+        return steps.get();
+    }
+
+    /**
+     * Return the number of steps that took at most the given bucket's bound.
+     *
+     * @param bucket The bucket, an index into LATENCY_BUCKETS, or its length for all steps.
+     * @return The cumulative number of steps.
+     */
+    public long getLatencyCount(int bucket) {
+        long count = 0;
+        for (int i = 0; i <= bucket; i++) {
+            count += latencyCounts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @return The total time spent stepping, in seconds.
+     */
+    public double getLatencySum() {
+        return latencySum.get() / 1e9;
+    }
+
+    /**
+     * @return The smoothed number of steps simulated per second.
+     */
+    public double getStepRate() {
+        return Double.longBitsToDouble(stepRate.get());
+    }
+
+    /**
+     * Return the population of a species after the latest step.
+     *
+     * @param species The species.
+     * @return The number of animals, or plants, of that species.
+     */
+    public long getPopulation(Species species) {
+        return populations.get(species.ordinal());
+    }
+
+    /**
+     * @return The number of births since the simulation started.
+     */
+    public long getBirths() {
+        return births.get();
+    }
+
+    /**
+     * Return the number of deaths from a cause since the simulation started.
+     *
+     * @param cause The cause of death.
+     * @return The number of animals that died of it.
+     */
+    public long getDeaths(DeathCause cause) {
+        return deaths.get(cause.ordinal());
+    }
+
+    /**
+     * @return The number of animals carrying a disease after the latest step.
+     */
+    public long getInfected() {
+        return infected.get();
+    }
+
+    /**
+     * @return The number of infections since the simulation started.
+     */
+    public long getInfections() {
+        return infections.get();
+    }
+
+    /**
+     * @return The number of infections caught from another animal since the simulation started.
+     */
+    public long getTransmissions() {
+        return transmissions.get();
+    }
+
+    /**
+     * @return The current step.
+     */
+    public long getStep() {
+        return step.get();
+    }
+
+    /**
+     * @return The current time of day.
+     */
+    public long getTime() {
+        return time.get();
+    }
+
+    /**
+     * Return the latency bucket a step duration falls into.
+     */
+    private static int bucketOf(double seconds) {
+        int bucket = 0;
+        while (bucket < LATENCY_BUCKETS.length && seconds > LATENCY_BUCKETS[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+}
@@ -1,3 +1,6 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
@@ -28,7 +31,9 @@ public class Simulator {
     private static final double MANATEE_CREATION_PROBABILITY = 0.17;
     // For random probability behaviour.
     private static final Random rand = Randomizer.getRandom();
-    // A graphical view of the simulation.
+    // The share of the animals that must die of one cause in a step to count as a mass death.
+    private static final double MASS_DEATH_FRACTION = 0.05;
+    // A graphical view of the simulation, or null if there is none.
     private final SimulatorView view;
     // The current state of the field.
     private Field field;
@@ -38,6 +43,26 @@ public class Simulator {
     private int time;
     // The current weather conditions: either sunny or rainy/cloudy
     private boolean isSunny;
+    // The log the run is recorded to, or null if it is not recorded.
+    private EventLog eventLog;
+    // The recent states, to notice when the run has settled.
+    private final StateHistory history = new StateHistory();
+    // The live telemetry of the run.
+    private final SimulationMetrics metrics = new SimulationMetrics();
+    // Decides when the next step may be taken.
+    private final Pacer pacer;
+    // Moves the animals on in two phases, or null to move them one after another.
+    private IntentCommitStepper stepper;
+    // Sorts the animals into Morton order of their locations, or null to leave them in the order they moved.
+    private MortonOrder mortonOrder;
+    // The number of steps between sorts of the animals.
+    private int sortPeriod;
+    // Whether dead animals are handed back to be reborn as newborns.
+    private boolean reuseAnimals = true;
+    // How the field is populated on reset.
+    private PopulationMode populationMode = PopulationMode.SEQUENTIAL;
+    // The random generator of a branch, or null to draw from that of the running thread.
+    private Random generator;
 
     /**
      * Construct a simulation field with default size.
@@ -53,19 +78,107 @@ public class Simulator {
      * @param width Width of the field. Must be greater than zero.
      */
     public Simulator(int depth, int width) {
-        if (width <= 0 || depth <= 0) {
-            System.out.println("The dimensions must be >= zero.");
-            System.out.println("Using default values.");
-            depth = DEFAULT_DEPTH;
-            width = DEFAULT_WIDTH;
+        this(depth, width, true);
+    }
+
+    /**
+     * Create a simulation field with the given size, with or without a
+     * graphical view. A simulation without a view does not report its
+     * statistics after each step and runs at full speed, which suits long
+     * batch runs. One with a view runs at a steady, adjustable rate.
+     *
+     * @param depth     Depth of the field. Must be greater than zero.
+     * @param width     Width of the field. Must be greater than zero.
+     * @param graphical Whether to show the simulation in a window.
+     */
+    public Simulator(int depth, int width, boolean graphical) {
+        this(depth, width, graphical, PopulationMode.SEQUENTIAL);
+    }
+
+    /**
+     * Create a simulation field with the given size, with or without a
+     * graphical view, populated in the given way. Populating in blocks is
+     * much quicker on very large fields, but gives a different field from
+     * the same seed than populating sequentially.
+     *
+     * @param depth          Depth of the field. Must be greater than zero.
+     * @param width          Width of the field. Must be greater than zero.
+     * @param graphical      Whether to show the simulation in a window.
+     * @param populationMode How to populate the field, now and on reset.
+     */
+    public Simulator(int depth, int width, boolean graphical, PopulationMode populationMode) {
+        this(depth > 0 && width > 0 ? new Field(depth, width) : defaultField(), graphical);
+        this.populationMode = populationMode;
+        reset();
+    }
+
+    /**
+     * Create a simulation that carries on from a world saved to a file, with
+     * or without a graphical view. The random generator of the calling
+     * thread is seeded as it was when the world was saved.
+     *
+     * @param world     The saved world.
+     * @param graphical Whether to show the simulation in a window.
+     * @throws IOException If the world cannot be read.
+     */
+    public Simulator(WorldFile world, boolean graphical) throws IOException {
+        this(new Field(world.getDepth(), world.getWidth()), graphical);
+        world.readInto(field);
+        step = world.getStep();
+        time = world.getTime();
+        isSunny = world.isSunny();
+        Randomizer.setSeed(world.getSeed());
+        metrics.reset(field);
+        if (view != null) {
+            view.showStatus(step, field, displayTime(time), time, displayWeather(time, isSunny));
+        }
+    }
+
+    /**
+     * Create a simulation starting from a map of its plants and animals, with
+     * or without a graphical view. What the map does not give, such as the
+     * animals' ages, is drawn from the random generator of the calling thread.
+     *
+     * @param map       The map of the world.
+     * @param graphical Whether to show the simulation in a window.
+     * @throws IOException If the map cannot be read.
+     */
+    public Simulator(WorldMap map, boolean graphical) throws IOException {
+        this(new Field(map.getDepth(), map.getWidth()), graphical);
+        map.readInto(field);
+        time = 1;
+        metrics.reset(field);
+        if (view != null) {
+            view.showStatus(step, field, displayTime(time), time, displayWeather(time, isSunny));
         }
+    }
 
-        field = new Field(depth, width);
-        view = new SimulatorView(depth, width);
+    /**
+     * Set up a simulation of the given, empty field.
+     */
+    private Simulator(Field field, boolean graphical) {
+        this.field = field;
+        int depth = field.getDepth();
+        int width = field.getWidth();
+        view = graphical ? new SimulatorView(depth, width) : null;
+        pacer = new Pacer(graphical ? PacingMode.TARGET_RATE : PacingMode.MAX_THROUGHPUT);
+        if (view != null) {
+            view.showControls(pacer);
+        }
+        if (view != null && view.isZoomedOut()) {
+            field.enableDensityPyramid(); // too large to draw one mark per position
+        }
         time = 0;
         isSunny = true;
+    }
 
-        reset();
+    /**
+     * Return a field of the default size, for when the size asked for is not valid.
+     */
+    private static Field defaultField() {
+        System.out.println("The dimensions must be >= zero.");
+        System.out.println("Using default values.");
+        return new Field(DEFAULT_DEPTH, DEFAULT_WIDTH);
     }
 
     /**
@@ -77,17 +190,53 @@ public class Simulator {
     }
 
     /**
-     * Run the simulation for the given number of steps.
-     * Stop before the given number of steps if it ceases to be viable.
+     * Run the simulation for the given number of steps, paced by the pacer.
+     * Stop before the given number of steps if it ceases to be viable,
+     * if it has settled into a fixed or periodic state, or if the thread
+     * running it is interrupted.
      *
      * @param numSteps The number of steps to run for.
      */
     public void simulate(int numSteps) {
-        reportStats();
-        for (int n = 1; n <= numSteps && field.isViable(); n++) {
+        if (view != null) {
+            reportStats();
+        }
+        for (int n = 1; n <= numSteps && field.isViable() && !history.isSettled()
+                && !Thread.currentThread().isInterrupted(); n++) {
+            pacer.awaitTurn();
             simulateOneStep();
-            delay(100);         // adjust this to change execution speed
+            pacer.afterStep(view);
+        }
+    }
+
+    /**
+     * Start a branch of the simulation from its current state, to see what
+     * would follow from a change such as culling a species. The branch has a
+     * field of its own, whose animals are copies and whose plants are shared
+     * with this field chunk by chunk until either changes a chunk, so the fork
+     * costs little beyond copying the animals. The branch draws from a random
+     * generator of its own, whichever thread runs it, so branches can run
+     * alongside each other and this simulation on separate threads. A branch
+     * has no view and records no events; it moves its animals on
+     * as this simulation does, with threads of its own in the two-phase mode.
+     *
+     * @param seed The seed of the branch's random generator.
+     * @return The branch, at the same step as this simulation.
+     */
+    public Simulator fork(long seed) {
+        Simulator branch = new Simulator(field.fork(), false);
+        branch.step = step;
+        branch.time = time;
+        branch.isSunny = isSunny;
+        branch.generator = new Random(seed);
+        branch.populationMode = populationMode;
+        if (stepper != null) {
+            branch.setUpdateMode(UpdateMode.INTENT_COMMIT, stepper.getThreads());
         }
+        branch.setSpatialOrder(sortPeriod);
+        branch.reuseAnimals = reuseAnimals;
+        branch.metrics.reset(branch.field);
+        return branch;
     }
 
     /**
@@ -95,23 +244,188 @@ public class Simulator {
      * Iterate over the whole field updating the state of each animal.
      */
     public void simulateOneStep() {
+        withOwnGenerator(this::advance);
+    }
+
+    /**
+     * Take a single step, drawing from the generator of the running thread.
+     */
+    private void advance() {
+        SimulationEvents.StepEvent stepEvent = new SimulationEvents.StepEvent();
+        stepEvent.begin();
+        long start = System.nanoTime();
         step++;
         incrementTime();
         isSunny = weatherChange();
         // Use a separate Field to store the starting state of
-        // the next step.
-        Field nextFieldState = new Field(field.getDepth(), field.getWidth());
-
+        // the next step. The plants and lifecycle carry over in place.
+        Field nextFieldState = new Field(field);
+        Plant plants = field.getPlants();
+        Lifecycle lifecycle = field.getLifecycle();
         List<Animal> animals = field.getAnimals();
-        for (Animal anAnimal : animals) {
-            anAnimal.act(field, nextFieldState, time, isSunny); // all animals behave differently during hours of the day
+        int population = animals.size();
+
+        if (mortonOrder != null && step % sortPeriod == 0) {
+            SimulationEvents.PhaseEvent sort = new SimulationEvents.PhaseEvent();
+            sort.begin();
+            field.sortAnimals(mortonOrder);
+            sort.finish(step, "sort");
+        }
+
+        // Deaths from old age and disease are processed only when due.
+        SimulationEvents.PhaseEvent phase = new SimulationEvents.PhaseEvent();
+        phase.begin();
+        lifecycle.advance();
+        plants.grow();
+        phase.finish(step, "lifecycle");
+
+        if (stepper != null) {
+            phase = new SimulationEvents.PhaseEvent();
+            phase.begin();
+            stepper.step(field, nextFieldState, time, isSunny);
+            phase.finish(step, "intent-commit");
+        } else {
+            actSequentially(animals, nextFieldState);
+        }
+
+        phase = new SimulationEvents.PhaseEvent();
+        phase.begin();
+        plants.breed(nextFieldState, time, isSunny);
+        phase.finish(step, "plants");
+
+        // Hand the animals that died back for reuse, now that no state of
+        // the field refers to them.
+        phase = new SimulationEvents.PhaseEvent();
+        phase.begin();
+        nextFieldState.removeDead();
+        if (reuseAnimals) {
+            for (Animal anAnimal : animals) {
+                if (!anAnimal.isAlive()) {
+                    lifecycle.release(anAnimal);
+                }
+            }
         }
+        phase.finish(step, "recycle");
 
         // Replace the old state with the new one.
         field = nextFieldState;
 
-        reportStats();
-        view.showStatus(step, field, displayTime(), time, displayWeather());
+        history.record(step, getStateHash());
+        emitFlightRecorderEvents(population);
+        if (eventLog != null) {
+            recordStep();
+        }
+        metrics.recordStep(step, time, System.nanoTime() - start, field);
+        stepEvent.end();
+        if (stepEvent.shouldCommit()) {
+            stepEvent.step = step;
+            stepEvent.time = time;
+            stepEvent.sunny = isSunny;
+            stepEvent.animals = field.getAnimals().size();
+            stepEvent.commit();
+        }
+
+        if (view != null) {
+            reportStats();
+            view.showStatus(step, field, displayTime(time), time, displayWeather(time, isSunny));
+        }
+    }
+
+    /**
+     * Let the animals act one after another, each seeing the moves of those before it.
+     *
+     * @param animals        The animals of the current field.
+     * @param nextFieldState The next state of the field.
+     */
+    private void actSequentially(List<Animal> animals, Field nextFieldState) {
+        // Dormant consumers only get hungrier, so they are handled in
+        // one pass and carried over in bulk before the active animals move.
+        SimulationEvents.PhaseEvent phase = new SimulationEvents.PhaseEvent();
+        phase.begin();
+        List<Animal> active = new ArrayList<>();
+        List<Animal> resting = new ArrayList<>();
+        for (Animal anAnimal : animals) {
+            if (!anAnimal.isAlive()) {
+                continue;
+            }
+            if (anAnimal instanceof Consumer consumer && consumer.isDormant(time, isSunny)) {
+                consumer.rest();
+                if (consumer.isAlive()) {
+                    resting.add(consumer);
+                }
+            } else {
+                active.add(anAnimal);
+            }
+        }
+        nextFieldState.placeAll(resting);
+        phase.finish(step, "rest");
+
+        phase = new SimulationEvents.PhaseEvent();
+        phase.begin();
+        for (Animal anAnimal : active) {
+            anAnimal.act(field, nextFieldState, time, isSunny); // all animals behave differently during hours of the day
+        }
+        phase.finish(step, "act");
+    }
+
+    /**
+     * Choose how the animals are moved on from one step to the next. The
+     * two-phase mode shares its work between the given number of threads
+     * and gives the same result whatever the number. The threads of the
+     * stepper being replaced are shut down, so a simulation that is done
+     * with the two-phase mode releases them by going back to sequential.
+     *
+     * @param mode    The update mode.
+     * @param threads The number of threads for the two-phase mode.
+     */
+    public void setUpdateMode(UpdateMode mode, int threads) {
+        if (stepper != null) {
+            stepper.shutdown();
+        }
+        stepper = mode == UpdateMode.INTENT_COMMIT ? new IntentCommitStepper(threads) : null;
+    }
+
+    /**
+     * Choose how the animals are moved on from one step to the next,
+     * using every processor for the two-phase mode.
+     *
+     * @param mode The update mode.
+     */
+    public void setUpdateMode(UpdateMode mode) {
+        setUpdateMode(mode, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Have the animals act in the Morton order of their locations, sorting
+     * them every given number of steps, so that neighbours are handled
+     * together. Between sorts the order drifts only as far as the animals
+     * move. The run is as reproducible as before but takes a different
+     * course, because the order in which the animals act matters. Sorting
+     * cuts the misses of a modelled cache, but MortonBenchmark finds the steps
+     * no faster for it, so it is left off by default.
+     *
+     * @param period The number of steps between sorts, or 0 to stop sorting.
+     */
+    public void setSpatialOrder(int period) {
+        sortPeriod = period;
+        mortonOrder = period > 0 ? new MortonOrder() : null;
+    }
+
+    /**
+     * Choose whether dead animals are handed back to be reborn as newborns,
+     * which saves allocating them. The run takes the same course either way.
+     *
+     * @param reuse Whether to reuse dead animals; they are reused by default.
+     */
+    public void setAnimalReuse(boolean reuse) {
+        reuseAnimals = reuse;
+    }
+
+    /**
+     * @return How the animals are moved on from one step to the next.
+     */
+    public UpdateMode getUpdateMode() {
+        return stepper != null ? UpdateMode.INTENT_COMMIT : UpdateMode.SEQUENTIAL;
     }
 
     /**
@@ -120,8 +434,201 @@ public class Simulator {
     public void reset() {
         step = 0;
         time = 1;
-        populate();
-        view.showStatus(step, field, displayTime(), time, displayWeather());
+        withOwnGenerator(this::populate);
+        history.clear();
+        metrics.reset(field);
+        if (view != null) {
+            view.showStatus(step, field, displayTime(time), time, displayWeather(time, isSunny));
+        }
+    }
+
+    /**
+     * Skip ahead to a distant step without stepping the agents all the way.
+     * The agents are first stepped through a calibration window, and a
+     * MeanFieldModel is fitted to their populations. The model is then
+     * integrated, a day at a time, to the day of the target step. Last, the
+     * field is populated afresh at the target step with the projected
+     * number of each species, spread at random.
+     * <p>
+     * A projection is only made where it is known to be of use: the bounds
+     * given must have been measured for the same fast-forward from a fresh
+     * field, and every species' bound must be usable. How far the projection
+     * may stray is then given by the bounds.
+     *
+     * @param targetStep       The step to skip to.
+     * @param calibrationSteps The number of steps to calibrate over, at least two days.
+     * @param bounds           The error bounds of the fast-forward, measured over full runs.
+     * @return The projected number of each species, by species ordinal.
+     * @throws IllegalArgumentException If the calibration window is shorter than
+     *                                  two days or reaches past the target step,
+     *                                  if the bounds describe another fast-forward,
+     *                                  or if any species' bound is too wide to use.
+     */
+    public long[] fastForward(int targetStep, int calibrationSteps, FastForwardBounds bounds) {
+        if (step != 0 || !bounds.describes(field.getDepth(), field.getWidth(), getUpdateMode(), calibrationSteps,
+                targetStep)) {
+            throw new IllegalArgumentException("the bounds were not measured for this fast-forward");
+        }
+        for (Species species : Species.values()) {
+            if (!bounds.isUsable(species)) {
+                throw new IllegalArgumentException(String.format(
+                        "the projection of %s to step %d may be out by %.0f%%, which is too far to be of use",
+                        species, targetStep, 100 * bounds.getErrorBound(species)));
+            }
+        }
+        long[] projected = project(targetStep, calibrationSteps);
+        reseed(targetStep, projected);
+        return projected;
+    }
+
+    /**
+     * Step the agents through a calibration window, fit a MeanFieldModel to
+     * their populations and project them from the last day of the window to
+     * the day of the target step. The agents are left at the end of the window.
+     *
+     * @return The projected number of each species, by species ordinal.
+     */
+    long[] project(int targetStep, int calibrationSteps) {
+        if (calibrationSteps < 2 * MeanFieldModel.STEPS_PER_DAY || step + calibrationSteps >= targetStep) {
+            throw new IllegalArgumentException("the calibration window must cover two days and end before the target");
+        }
+        long[][] populations = new long[calibrationSteps][];
+        for (int n = 0; n < calibrationSteps; n++) {
+            simulateOneStep();
+            populations[n] = getPopulations();
+        }
+        MeanFieldModel model = MeanFieldModel.fit(populations, field.getDepth() * field.getWidth());
+        // start from the mean of the last whole day of the window
+        int days = calibrationSteps / MeanFieldModel.STEPS_PER_DAY;
+        long[] start = new long[Species.values().length];
+        for (int n = (days - 1) * MeanFieldModel.STEPS_PER_DAY; n < days * MeanFieldModel.STEPS_PER_DAY; n++) {
+            for (int s = 0; s < start.length; s++) {
+                start[s] += populations[n][s];
+            }
+        }
+        for (int s = 0; s < start.length; s++) {
+            start[s] /= MeanFieldModel.STEPS_PER_DAY;
+        }
+        return model.project(start, (targetStep - step) / MeanFieldModel.STEPS_PER_DAY);
+    }
+
+    /**
+     * Populate the field afresh at the given step with about the given
+     * number of each species, spread at random over the field.
+     *
+     * @param targetStep  The step the simulation continues from.
+     * @param populations The number of each species wanted, by species ordinal.
+     */
+    public void reseed(int targetStep, long[] populations) {
+        step = targetStep;
+        time = (1 + targetStep) % 24;
+        withOwnGenerator(() -> populate(populations));
+        history.clear();
+        metrics.reset(field);
+        if (view != null) {
+            view.showStatus(step, field, displayTime(time), time, displayWeather(time, isSunny));
+        }
+    }
+
+    /**
+     * Return the current population of each species.
+     *
+     * @return The number of each species, by species ordinal.
+     */
+    public long[] getPopulations() {
+        long[] populations = new long[Species.values().length];
+        for (Species species : Species.values()) {
+            if (species != Species.EMPTY) {
+                populations[species.ordinal()] = field.getPopulation(species);
+            }
+        }
+        return populations;
+    }
+
+    /**
+     * Record the run from now on to the given log, starting with the
+     * current state of the field. The caller closes the log.
+     *
+     * @param eventLog The log to record to, or null to stop recording.
+     */
+    public void setEventLog(EventLog eventLog) {
+        if (this.eventLog != null) {
+            this.eventLog.detach();
+        }
+        this.eventLog = eventLog;
+        if (eventLog != null) {
+            recordStep();
+        }
+    }
+
+    /**
+     * Return the pacer, to change how fast the simulation runs.
+     *
+     * @return The pacer of the simulation.
+     */
+    public Pacer getPacer() {
+        return pacer;
+    }
+
+    /**
+     * Return the live telemetry of the run, which may be read from any thread.
+     *
+     * @return The metrics of the simulation.
+     */
+    public SimulationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return The current time of day in the simulation, in hours.
+     */
+    public int getTime() {
+        return time;
+    }
+
+    /**
+     * @return true if the weather is sunny.
+     */
+    public boolean isSunny() {
+        return isSunny;
+    }
+
+    /**
+     * Return the current step of the simulation.
+     *
+     * @return The number of steps simulated since the last reset.
+     */
+    public int getStep() {
+        return step;
+    }
+
+    /**
+     * Return a hash of the state of the simulation: the occupants of the
+     * field and the time of day. Equal states have equal hashes.
+     *
+     * @return The hash of the current state.
+     */
+    public long getStateHash() {
+        return field.getStateHash() ^ Zobrist.timeKey(time);
+    }
+
+    /**
+     * Check whether the run has settled into a fixed or periodic state,
+     * after which simulating further is unlikely to show anything new.
+     *
+     * @return true if the run has settled.
+     */
+    public boolean isSettled() {
+        return history.isSettled();
+    }
+
+    /**
+     * Return the current state of the field.
+     *
+     * @return The field.
+     */
+    public Field getField() {
+        return field;
     }
 
     /**
@@ -130,12 +637,21 @@ public class Simulator {
     private void populate() {
         Random rand = Randomizer.getRandom();
         field.clear();
+        if (populationMode == PopulationMode.BLOCKS) {
+            BlockPopulator populator = new BlockPopulator(
+                    new Species[]{Species.PLANT, Species.IGUANA, Species.ORCA,
+                            Species.TURTLE, Species.SHARK, Species.MANATEE},
+                    new double[]{PLANT_CREATION_PROBABILITY, IGUANA_CREATION_PROBABILITY, ORCA_CREATION_PROBABILITY,
+                            TURTLE_CREATION_PROBABILITY, SHARK_CREATION_PROBABILITY, MANATEE_CREATION_PROBABILITY});
+            populator.populate(field, rand.nextLong(), Runtime.getRuntime().availableProcessors());
+            return;
+        }
         for (int row = 0; row < field.getDepth(); row++) {
             for (int col = 0; col < field.getWidth(); col++) {
                 Location location = new Location(row, col);
                 Animal animal = null;
                 if (rand.nextDouble() <= PLANT_CREATION_PROBABILITY) {
-                    animal = new Plant(true, location);
+                    field.getPlants().plant(location, true);
                 } else if (rand.nextDouble() <= IGUANA_CREATION_PROBABILITY) {
                     animal = new Iguana(true, location);
                 } else if (rand.nextDouble() <= ORCA_CREATION_PROBABILITY) {
@@ -153,26 +669,120 @@ public class Simulator {
     }
 
     /**
-     * Report on the number of each type of animal in the field.
+     * Run an action drawing from the branch's own random generator, if the
+     * simulation is a branch.
      */
-    public void reportStats() {
-        //System.out.print("Step: " + step + " ");
-        field.fieldStats();
+    private void withOwnGenerator(Runnable action) {
+        if (generator == null) {
+            action.run();
+            return;
+        }
+        Random previous = Randomizer.use(generator);
+        try {
+            action.run();
+        } finally {
+            Randomizer.use(previous);
+        }
     }
 
     /**
-     * Pause for a given time.
-     *
-     * @param milliseconds The time to pause for, in milliseconds
+     * Populate the field at random with the given number of each species
+     * expected, each position holding one species with the chance of its
+     * share of the field.
+     */
+    private void populate(long[] populations) {
+        Random rand = Randomizer.getRandom();
+        field.clear();
+        int positions = field.getDepth() * field.getWidth();
+        long total = 0;
+        for (long population : populations) {
+            total += population;
+        }
+        double scale = Math.min(1.0, (double) positions / Math.max(total, 1)) / positions;
+        for (int row = 0; row < field.getDepth(); row++) {
+            for (int col = 0; col < field.getWidth(); col++) {
+                Location location = new Location(row, col);
+                double draw = rand.nextDouble();
+                Species chosen = Species.EMPTY;
+                for (Species species : Species.values()) {
+                    draw -= populations[species.ordinal()] * scale;
+                    if (species != Species.EMPTY && draw < 0) {
+                        chosen = species;
+                        break;
+                    }
+                }
+                Animal animal = switch (chosen) {
+                    case PLANT -> {
+                        field.getPlants().plant(location, true);
+                        yield null;
+                    }
+                    case TURTLE -> new Turtle(true, location);
+                    case IGUANA -> new Iguana(true, location);
+                    case MANATEE -> new Manatee(true, location);
+                    case SHARK -> new Shark(true, location);
+                    case ORCA -> new Orca(true, location);
+                    case EMPTY -> null;
+                };
+                if (animal != null) field.placeAnimal(animal, location);
+            }
+        }
+    }
+
+    /**
+     * Write the events of the current step to the event log.
      */
-    private void delay(int milliseconds) {
+    private void recordStep() {
         try {
-            Thread.sleep(milliseconds);
-        } catch (InterruptedException e) {
-            // ignore
+            eventLog.record(step, time, isSunny, field);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not record step " + step, e);
         }
     }
 
+    /**
+     * Emit the population and any mass deaths of the step just simulated,
+     * if Flight Recorder is recording them.
+     *
+     * @param population The number of animals at the start of the step.
+     */
+    private void emitFlightRecorderEvents(int population) {
+        SimulationEvents.PopulationEvent populationEvent = new SimulationEvents.PopulationEvent();
+        if (populationEvent.isEnabled()) {
+            populationEvent.step = step;
+            populationEvent.plants = field.getPopulation(Species.PLANT);
+            populationEvent.turtles = field.getPopulation(Species.TURTLE);
+            populationEvent.iguanas = field.getPopulation(Species.IGUANA);
+            populationEvent.manatees = field.getPopulation(Species.MANATEE);
+            populationEvent.sharks = field.getPopulation(Species.SHARK);
+            populationEvent.orcas = field.getPopulation(Species.ORCA);
+            populationEvent.commit();
+        }
+
+        SimulationEvents.MassDeathEvent massDeath = new SimulationEvents.MassDeathEvent();
+        if (massDeath.isEnabled()) {
+            Lifecycle lifecycle = field.getLifecycle();
+            for (DeathCause cause : DeathCause.values()) {
+                int deaths = lifecycle.getDeaths(cause);
+                if (deaths > 0 && deaths >= population * MASS_DEATH_FRACTION) {
+                    massDeath = new SimulationEvents.MassDeathEvent();
+                    massDeath.step = step;
+                    massDeath.cause = cause.name();
+                    massDeath.deaths = deaths;
+                    massDeath.population = population;
+                    massDeath.commit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Report on the number of each type of animal in the field.
+     */
+    public void reportStats() {
+        //System.out.print("Step: " + step + " ");
+        field.fieldStats();
+    }
+
     /**
      * Increments the time hourly.
      * If it reaches 24 hours, the time reverts back to 0.
@@ -184,9 +794,10 @@ public class Simulator {
     /**
      * Changes the way the time is displayed, based on AM or PM clocks.
      *
-     * @return a string displaying the current time.
+     * @param time The time of the environment.
+     * @return a string displaying the time.
      */
-    private String displayTime() {
+    static String displayTime(int time) {
         int displayHour = (time == 0 || time == 12) ? 12 : time % 12;
         String period = (time < 12) ? " am" : " pm";
         return displayHour + period;
@@ -211,15 +822,15 @@ public class Simulator {
     }
 
     /**
-     * Displays the current weather of the environment.
+     * Displays the weather of the environment.
      *
-     * @return a string displaying the current weather.
+     * @param time    The time of the environment.
+     * @param isSunny The weather condition.
+     * @return a string displaying the weather.
      */
-    private String displayWeather() {
+    static String displayWeather(int time, boolean isSunny) {
         if (!Animal.validTime(time)) return "Night";
         if (isSunny) return "Sunny";
         return "Cloudy";
     }
-
-
 }
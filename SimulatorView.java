@@ -1,5 +1,9 @@
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.lang.reflect.InvocationTargetException;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -15,10 +19,13 @@ import java.util.Map;
  */
 public class SimulatorView extends JFrame {
     // Colors used for empty locations.
-    private static final Color EMPTY_COLOR = Color.white;
+    static final Color EMPTY_COLOR = Color.white;
 
     // Color used for objects that have no defined color.
-    private static final Color UNKNOWN_COLOR = Color.red;
+    static final Color UNKNOWN_COLOR = Color.red;
+
+    // The number of positions of the speed slider, spread evenly over the logarithm of the rate.
+    private static final int SPEED_POSITIONS = 300;
 
     private final String STEP_PREFIX = "Step: ";
     private final String POPULATION_PREFIX = "Population: ";
@@ -36,6 +43,8 @@ public class SimulatorView extends JFrame {
     private final Map<Class<?>, Color> colors;
     // A statistics object computing and storing simulation information
     private final FieldStats stats;
+    // The field shown last, drawn again when the view is panned or zoomed.
+    private SpeciesGrid lastField;
 
     /**
      * Create a view of the given width and height.
@@ -45,13 +54,7 @@ public class SimulatorView extends JFrame {
      */
     public SimulatorView(int height, int width) {
         stats = new FieldStats();
-        colors = new LinkedHashMap<>();
-        setColor(Turtle.class, new Color(139, 69, 19)); // Saddle Brown
-        setColor(Shark.class, new Color(169, 169, 169));
-        setColor(Iguana.class, new Color(34, 139, 100)); // Forest Green
-        setColor(Plant.class, new Color(0, 200, 0));
-        setColor(Orca.class, new Color(50, 50, 50));
-        setColor(Manatee.class, new Color(102, 153, 255));
+        colors = defaultColors();
 
         setTitle("Underwater Ecosystem Simulation");
         stepLabel = new JLabel(STEP_PREFIX, JLabel.CENTER);
@@ -81,6 +84,23 @@ public class SimulatorView extends JFrame {
         setVisible(true);
     }
 
+    /**
+     * Return the colors the view draws each class of occupant in, for
+     * drawing the field the same way without a window.
+     *
+     * @return A new map from each class to its color.
+     */
+    static Map<Class<?>, Color> defaultColors() {
+        Map<Class<?>, Color> colors = new LinkedHashMap<>();
+        colors.put(Turtle.class, new Color(139, 69, 19)); // Saddle Brown
+        colors.put(Shark.class, new Color(169, 169, 169));
+        colors.put(Iguana.class, new Color(34, 139, 100)); // Forest Green
+        colors.put(Plant.class, new Color(0, 200, 0));
+        colors.put(Orca.class, new Color(50, 50, 50));
+        colors.put(Manatee.class, new Color(102, 153, 255));
+        return colors;
+    }
+
     /**
      * Define a color to be used for a given class of animal.
      *
@@ -112,7 +132,7 @@ public class SimulatorView extends JFrame {
      * @param currentTime String display of the current time of the environment.
      * @param time        The current time of the environment.
      */
-    public void showStatus(int step, Field field, String currentTime, int time, String currentWeather) {
+    public void showStatus(int step, SpeciesGrid field, String currentTime, int time, String currentWeather) {
         if (!isVisible()) {
             setVisible(true);
         }
@@ -120,26 +140,231 @@ public class SimulatorView extends JFrame {
         stepLabel.setText(STEP_PREFIX + step);
         stats.reset();
 
+        lastField = field;
+        drawField(field);
+        countPopulation(field);
+        stats.countFinished();
+
+        population.setText(POPULATION_PREFIX + stats.getPopulationDetails(field) + " | ");
+        this.time.setText(TIME_PREFIX + currentTime + " | ");
+        temperature.setText(TEMPERATURE_PREFIX + Iguana.displayCold(time) + " | ");
+        weather.setText(WEATHER_PREFIX + currentWeather);
+        fieldView.repaint();
+    }
+
+    /**
+     * Add controls for the pace of a run: pause and resume, a single step
+     * while paused, the pacing mode and the target number of steps per second.
+     *
+     * @param pacer The pacer of the simulation shown.
+     */
+    public void showControls(Pacer pacer) {
+        JButton pause = new JButton("Pause");
+        JButton step = new JButton("Step");
+        step.setEnabled(false);
+        pause.addActionListener(e -> {
+            boolean paused = !pacer.isPaused();
+            pacer.setPaused(paused);
+            pause.setText(paused ? "Resume" : "Pause");
+            step.setEnabled(paused);
+        });
+        step.addActionListener(e -> pacer.step());
+
+        JComboBox<PacingMode> mode = new JComboBox<>(PacingMode.values());
+        mode.setSelectedItem(pacer.getMode());
+        JSlider speed = new JSlider(0, SPEED_POSITIONS, sliderPosition(pacer.getTargetRate()));
+        JLabel rate = new JLabel(formatRate(pacer.getTargetRate()));
+        speed.setEnabled(pacer.getMode() == PacingMode.TARGET_RATE);
+        mode.addActionListener(e -> {
+            PacingMode selected = (PacingMode) mode.getSelectedItem();
+            pacer.setMode(selected);
+            speed.setEnabled(selected == PacingMode.TARGET_RATE);
+        });
+        speed.addChangeListener(e -> {
+            pacer.setTargetRate(sliderRate(speed.getValue()));
+            rate.setText(formatRate(pacer.getTargetRate()));
+        });
+
+        JPanel controls = new JPanel();
+        controls.setLayout(new FlowLayout());
+        controls.add(stepLabel);
+        controls.add(pause);
+        controls.add(step);
+        controls.add(mode);
+        controls.add(speed);
+        controls.add(rate);
+        Container contents = getContentPane();
+        contents.remove(stepLabel);
+        contents.add(controls, BorderLayout.NORTH);
+        pack();
+    }
+
+    /**
+     * Wait until the field view has been painted on screen with the
+     * last status shown.
+     */
+    public void awaitPainted() {
+        try {
+            SwingUtilities.invokeAndWait(() ->
+                    fieldView.paintImmediately(0, 0, fieldView.getWidth(), fieldView.getHeight()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Could not paint the field", e.getCause());
+        }
+    }
+
+    /**
+     * Check whether the field is too large to draw one mark per position,
+     * so that the view needs a density pyramid to draw it zoomed out.
+     *
+     * @return true if a position is smaller than a pixel.
+     */
+    public boolean isZoomedOut() {
+        return fieldView.getCellsPerPixel() > 1;
+    }
+
+    /**
+     * Draw the part of the field inside the viewport. Only the positions, or
+     * the blocks of positions when zoomed out, that can be seen are visited.
+     */
+    private synchronized void drawField(SpeciesGrid field) {
         fieldView.preparePaint();
+        int top = fieldView.getFirstRow(), bottom = fieldView.getLastRow();
+        int left = fieldView.getFirstCol(), right = fieldView.getLastCol();
+        int cellsPerPixel = fieldView.getCellsPerPixel();
+        if (cellsPerPixel > 1 && field instanceof Field aField && aField.getDensityPyramid() != null) {
+            drawDensity(aField, cellsPerPixel, top, left, bottom, right);
+            return;
+        }
+        for (int row = top; row <= bottom; row++) {
+            for (int col = left; col <= right; col++) {
+                Species animal = field.animalAt(row, col);
+                if (animal != Species.EMPTY) {
+                    fieldView.drawMark(col, row, getColor(animal.getType()));
+                } else if (field.hasPlantAt(row, col)) {
+                    fieldView.drawMark(col, row, getColor(Plant.class));
+                } else {
+                    fieldView.drawMark(col, row, EMPTY_COLOR);
+                }
+            }
+        }
+    }
 
+    /**
+     * Draw the field again after the viewport has moved.
+     */
+    private void redraw() {
+        SpeciesGrid field = lastField;
+        if (field != null) {
+            drawField(field);
+            fieldView.repaint();
+        }
+    }
+
+    /**
+     * Count the population of the whole field, which the live field keeps
+     * track of itself and a replayed one has to be scanned for.
+     */
+    private void countPopulation(SpeciesGrid field) {
+        if (field instanceof Field aField) {
+            for (Species species : Species.values()) {
+                int count = species == Species.EMPTY ? 0 : aField.getPopulation(species);
+                if (count > 0) {
+                    stats.incrementCount(species.getType(), count);
+                }
+            }
+            return;
+        }
         for (int row = 0; row < field.getDepth(); row++) {
             for (int col = 0; col < field.getWidth(); col++) {
-                Object animal = field.getAnimalAt(new Location(row, col));
-                if (animal != null) {
-                    stats.incrementCount(animal.getClass());
-                    fieldView.drawMark(col, row, getColor(animal.getClass()));
-                } else {
-                    fieldView.drawMark(col, row, EMPTY_COLOR);
+                Species animal = field.animalAt(row, col);
+                if (animal != Species.EMPTY) {
+                    stats.incrementCount(animal.getType());
+                }
+                if (field.hasPlantAt(row, col)) {
+                    stats.incrementCount(Plant.class);
                 }
             }
         }
-        stats.countFinished();
+    }
 
-        population.setText(POPULATION_PREFIX + stats.getPopulationDetails(field) + " | ");
-        this.time.setText(TIME_PREFIX + currentTime + " | ");
-        temperature.setText(TEMPERATURE_PREFIX + Iguana.displayCold(time) + " | ");
-        weather.setText(WEATHER_PREFIX + currentWeather);
-        fieldView.repaint();
+    /**
+     * Draw the visible part of the field zoomed out, from the finest level of
+     * its density pyramids whose blocks are at least a pixel wide. Each block
+     * is drawn in the color of its most common species, faded by how full the
+     * block is.
+     */
+    private void drawDensity(Field field, int cellsPerPixel, int top, int left, int bottom, int right) {
+        DensityPyramid animals = field.getDensityPyramid();
+        DensityPyramid plants = field.getPlants().getDensityPyramid();
+        int level = animals.levelFor(cellsPerPixel);
+        int size = animals.getBlockSize(level);
+        for (int blockRow = top / size; blockRow <= bottom / size; blockRow++) {
+            for (int blockCol = left / size; blockCol <= right / size; blockCol++) {
+                Species dominant = Species.EMPTY;
+                int dominantCount = 0, occupied = 0;
+                for (Species species : Species.values()) {
+                    if (species != Species.EMPTY && species != Species.PLANT) {
+                        int count = animals.getCount(level, blockRow, blockCol, species.ordinal());
+                        occupied += count;
+                        if (count > dominantCount) {
+                            dominant = species;
+                            dominantCount = count;
+                        }
+                    }
+                }
+                int plantCount = plants.getCount(level, blockRow, blockCol, 0);
+                if (dominant == Species.EMPTY && plantCount > 0) {
+                    dominant = Species.PLANT;
+                }
+                int blockTop = blockRow * size, blockLeft = blockCol * size;
+                int area = (Math.min(blockTop + size, field.getDepth()) - blockTop)
+                        * (Math.min(blockLeft + size, field.getWidth()) - blockLeft);
+                Color color = dominant == Species.EMPTY ? EMPTY_COLOR
+                        : fade(getColor(dominant.getType()), Math.min(1.0, (double) (occupied + plantCount) / area));
+                fieldView.drawBlock(blockLeft, blockTop, size, color);
+            }
+        }
+    }
+
+    /**
+     * Return the rate at a position of the speed slider, from Pacer.MIN_RATE
+     * at one end to Pacer.MAX_RATE at the other, on a logarithmic scale so
+     * that slow rates can be chosen as finely as fast ones.
+     */
+    private static double sliderRate(int position) {
+        double rate = Pacer.MIN_RATE * Math.pow(Pacer.MAX_RATE / Pacer.MIN_RATE, (double) position / SPEED_POSITIONS);
+        // round to two significant figures, so the rates chosen are easy to read
+        double unit = Math.pow(10, Math.floor(Math.log10(rate)) - 1);
+        return Math.round(rate / unit) * unit;
+    }
+
+    /**
+     * Return the position of the speed slider nearest the given rate.
+     */
+    private static int sliderPosition(double rate) {
+        double fraction = Math.log(rate / Pacer.MIN_RATE) / Math.log(Pacer.MAX_RATE / Pacer.MIN_RATE);
+        return (int) Math.round(Math.max(0, Math.min(1, fraction)) * SPEED_POSITIONS);
+    }
+
+    /**
+     * Return a rate as shown beside the speed slider.
+     */
+    private static String formatRate(double rate) {
+        int decimals = rate < 1 ? 2 : rate < 10 ? 1 : 0;
+        return String.format("%." + decimals + "f steps/s", rate);
+    }
+
+    /**
+     * Return a color faded towards the empty color, the more so the lower the density.
+     */
+    private static Color fade(Color color, double density) {
+        double strength = 0.25 + 0.75 * density;
+        return new Color(
+                (int) (EMPTY_COLOR.getRed() + (color.getRed() - EMPTY_COLOR.getRed()) * strength),
+                (int) (EMPTY_COLOR.getGreen() + (color.getGreen() - EMPTY_COLOR.getGreen()) * strength),
+                (int) (EMPTY_COLOR.getBlue() + (color.getBlue() - EMPTY_COLOR.getBlue()) * strength));
     }
 
     /**
@@ -158,15 +383,31 @@ public class SimulatorView extends JFrame {
      * component displays the field.
      * This is rather advanced GUI stuff - you can ignore this
      * for your project if you like.
+     * <p>
+     * The view is a viewport onto the field: dragging with the mouse pans
+     * it and the mouse wheel zooms in and out around the pointer.
      */
     private class FieldView extends JPanel {
         private final int GRID_VIEW_SCALING_FACTOR = 6;
+        // The largest size the view asks for, in pixels.
+        private final int MAX_VIEW_WIDTH = 1200, MAX_VIEW_HEIGHT = 800;
+        // The most pixels a position may be zoomed to.
+        private final double MAX_ZOOM = 40;
+        // How much one notch of the mouse wheel zooms.
+        private final double ZOOM_STEP = 1.2;
+        // The color shown beyond the edges of the field.
+        private final Color OUTSIDE_COLOR = Color.lightGray;
 
         private final int gridWidth, gridHeight;
         Dimension size;
-        private int xScale, yScale;
         private Graphics g;
         private Image fieldImage;
+        // The width of a position in pixels, or 0 until the view is first fitted.
+        private double zoom;
+        // The position, in fractions of a position, at the top left corner of the view.
+        private double originX, originY;
+        // Where the mouse was when last dragged.
+        private Point dragFrom;
 
         /**
          * Create a new FieldView component.
@@ -175,43 +416,166 @@ public class SimulatorView extends JFrame {
             gridHeight = height;
             gridWidth = width;
             size = new Dimension(0, 0);
+
+            MouseAdapter mouse = new MouseAdapter() {
+                @Override
+                public void mousePressed(MouseEvent e) {
+                    dragFrom = e.getPoint();
+                }
+
+                @Override
+                public void mouseDragged(MouseEvent e) {
+                    synchronized (SimulatorView.this) {
+                        pan(e.getX() - dragFrom.x, e.getY() - dragFrom.y);
+                    }
+                    dragFrom = e.getPoint();
+                    redraw();
+                }
+
+                @Override
+                public void mouseWheelMoved(MouseWheelEvent e) {
+                    synchronized (SimulatorView.this) {
+                        zoomAt(e.getX(), e.getY(), Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()));
+                    }
+                    redraw();
+                }
+            };
+            addMouseListener(mouse);
+            addMouseMotionListener(mouse);
+            addMouseWheelListener(mouse);
         }
 
         /**
          * Tell the GUI manager how big we would like to be.
          */
         public Dimension getPreferredSize() {
-            return new Dimension(gridWidth * GRID_VIEW_SCALING_FACTOR,
-                    gridHeight * GRID_VIEW_SCALING_FACTOR);
+            if (gridWidth * GRID_VIEW_SCALING_FACTOR <= MAX_VIEW_WIDTH
+                    && gridHeight * GRID_VIEW_SCALING_FACTOR <= MAX_VIEW_HEIGHT) {
+                return new Dimension(gridWidth * GRID_VIEW_SCALING_FACTOR,
+                        gridHeight * GRID_VIEW_SCALING_FACTOR);
+            }
+            // too large to show at full scale: fit the view, keeping its shape
+            double scale = Math.min((double) MAX_VIEW_WIDTH / gridWidth, (double) MAX_VIEW_HEIGHT / gridHeight);
+            return new Dimension(Math.max(1, (int) (gridWidth * scale)), Math.max(1, (int) (gridHeight * scale)));
+        }
+
+        /**
+         * Return how many positions of the field fall across one pixel,
+         * at least one, at the current zoom or, before the view is shown,
+         * at its preferred size.
+         */
+        public int getCellsPerPixel() {
+            double scale = zoom > 0 ? zoom : fitZoom(getPreferredSize());
+            return Math.max(1, (int) Math.ceil(1 / scale));
         }
 
         /**
          * Prepare for a new round of painting. Since the component
-         * may be resized, compute the scaling factor again.
+         * may be resized, fit the viewport to it again, and clear it.
          */
         public void preparePaint() {
             if (!size.equals(getSize())) {  // if the size has changed...
                 size = getSize();
-                fieldImage = fieldView.createImage(size.width, size.height);
+                fieldImage = fieldView.createImage(Math.max(1, size.width), Math.max(1, size.height));
                 g = fieldImage.getGraphics();
-
-                xScale = size.width / gridWidth;
-                if (xScale < 1) {
-                    xScale = GRID_VIEW_SCALING_FACTOR;
-                }
-                yScale = size.height / gridHeight;
-                if (yScale < 1) {
-                    yScale = GRID_VIEW_SCALING_FACTOR;
+                if (zoom == 0) {
+                    zoom = fitZoom(size);
                 }
+                clampViewport();
             }
+            g.setColor(OUTSIDE_COLOR);
+            g.fillRect(0, 0, size.width, size.height);
+        }
+
+        /**
+         * @return The first row of the field inside the view.
+         */
+        public int getFirstRow() {
+            return Math.max(0, (int) originY);
+        }
+
+        /**
+         * @return The last row of the field inside the view.
+         */
+        public int getLastRow() {
+            return Math.min(gridHeight - 1, (int) (originY + size.height / zoom));
+        }
+
+        /**
+         * @return The first column of the field inside the view.
+         */
+        public int getFirstCol() {
+            return Math.max(0, (int) originX);
+        }
+
+        /**
+         * @return The last column of the field inside the view.
+         */
+        public int getLastCol() {
+            return Math.min(gridWidth - 1, (int) (originX + size.width / zoom));
         }
 
         /**
          * Paint on grid location on this field in a given color.
          */
         public void drawMark(int x, int y, Color color) {
+            drawBlock(x, y, 1, color);
+        }
+
+        /**
+         * Paint a square block of grid locations in a given color.
+         * Positions drawn large enough are separated by a line of background.
+         */
+        public void drawBlock(int x, int y, int blockSize, Color color) {
+            int left = (int) Math.floor((x - originX) * zoom);
+            int top = (int) Math.floor((y - originY) * zoom);
+            int right = (int) Math.floor((Math.min(x + blockSize, gridWidth) - originX) * zoom);
+            int bottom = (int) Math.floor((Math.min(y + blockSize, gridHeight) - originY) * zoom);
+            int gap = zoom >= 3 ? 1 : 0;
             g.setColor(color);
-            g.fillRect(x * xScale, y * yScale, xScale - 1, yScale - 1);
+            g.fillRect(left, top, Math.max(1, right - left - gap), Math.max(1, bottom - top - gap));
+        }
+
+        /**
+         * Move the viewport by the given number of pixels.
+         */
+        private void pan(int dx, int dy) {
+            originX -= dx / zoom;
+            originY -= dy / zoom;
+            clampViewport();
+        }
+
+        /**
+         * Zoom by a factor, keeping the position under the given pixel in place.
+         */
+        private void zoomAt(int x, int y, double factor) {
+            double fieldX = originX + x / zoom, fieldY = originY + y / zoom;
+            zoom *= factor;
+            clampViewport();
+            originX = fieldX - x / zoom;
+            originY = fieldY - y / zoom;
+            clampViewport();
+        }
+
+        /**
+         * Keep the zoom between showing the whole field and MAX_ZOOM,
+         * and the viewport on the field.
+         */
+        private void clampViewport() {
+            double fit = fitZoom(size);
+            zoom = Math.max(fit, Math.min(zoom, Math.max(fit, MAX_ZOOM)));
+            originX = Math.max(0, Math.min(originX, gridWidth - size.width / zoom));
+            originY = Math.max(0, Math.min(originY, gridHeight - size.height / zoom));
+        }
+
+        /**
+         * Return the zoom that shows the whole field in a view of the given size.
+         */
+        private double fitZoom(Dimension view) {
+            if (view.width <= 0 || view.height <= 0) {
+                return 1;
+            }
+            return Math.min((double) view.width / gridWidth, (double) view.height / gridHeight);
         }
 
         /**
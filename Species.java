@@ -0,0 +1,74 @@
+/**
+ * The kinds of occupant a field position can show, each with a compact code
+ * used when the state of the field is written out or replayed.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public enum Species {
+    EMPTY(null),
+    PLANT(Plant.class),
+    TURTLE(Turtle.class),
+    IGUANA(Iguana.class),
+    MANATEE(Manatee.class),
+    SHARK(Shark.class),
+    ORCA(Orca.class);
+
+    // All species, indexed by code.
+    private static final Species[] BY_CODE = values();
+
+    // The class representing the species in the simulation.
+    private final Class<?> type;
+
+    /**
+     * @param type The class representing the species.
+     */
+    Species(Class<?> type) {
+        this.type = type;
+    }
+
+    /**
+     * Return the species of an animal.
+     *
+     * @param anAnimal The animal, or null.
+     * @return The animal's species, or EMPTY for null.
+     */
+    public static Species of(Animal anAnimal) {
+        if (anAnimal instanceof Turtle) {
+            return TURTLE;
+        } else if (anAnimal instanceof Iguana) {
+            return IGUANA;
+        } else if (anAnimal instanceof Manatee) {
+            return MANATEE;
+        } else if (anAnimal instanceof Shark) {
+            return SHARK;
+        } else if (anAnimal instanceof Orca) {
+            return ORCA;
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Return the species with the given code.
+     *
+     * @param code The species' code.
+     * @return The species.
+     */
+    public static Species fromCode(int code) {
+        return BY_CODE[code];
+    }
+
+    /**
+     * @return The species' compact code.
+     */
+    public byte code() {
+        return (byte) ordinal();
+    }
+
+    /**
+     * @return The class representing the species, or null for EMPTY.
+     */
+    public Class<?> getType() {
+        return type;
+    }
+}
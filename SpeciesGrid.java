@@ -0,0 +1,56 @@
+/**
+ * A read-only picture of what occupies each position of a field: at most
+ * one animal and possibly a plant beneath it. Both the live field and a
+ * replayed recording can be shown through it.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public interface SpeciesGrid {
+    /**
+     * @return The depth of the grid.
+     */
+    int getDepth();
+
+    /**
+     * @return The width of the grid.
+     */
+    int getWidth();
+
+    /**
+     * Return the species of the animal at a position.
+     *
+     * @param row The row of the position.
+     * @param col The column of the position.
+     * @return The animal's species, or EMPTY if there is no animal.
+     */
+    Species animalAt(int row, int col);
+
+    /**
+     * Check whether a plant grows at a position.
+     *
+     * @param row The row of the position.
+     * @param col The column of the position.
+     * @return true if there is a plant at the position.
+     */
+    boolean hasPlantAt(int row, int col);
+
+    /**
+     * Copy the code of what is shown at each position, row by row: the
+     * animal's species, or PLANT if only a plant grows there, or EMPTY.
+     *
+     * @param codes The array to fill, with a place for every position.
+     */
+    default void copyCodes(byte[] codes) {
+        int index = 0;
+        for (int row = 0; row < getDepth(); row++) {
+            for (int col = 0; col < getWidth(); col++) {
+                Species animal = animalAt(row, col);
+                if (animal == Species.EMPTY && hasPlantAt(row, col)) {
+                    animal = Species.PLANT;
+                }
+                codes[index++] = animal.code();
+            }
+        }
+    }
+}
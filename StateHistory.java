@@ -0,0 +1,100 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers the state hashes of recent steps to notice when a run has
+ * settled: when the same sequence of states keeps coming round with a fixed
+ * period, including the case of a field that no longer changes at all.
+ * Weather is random and not part of the state, so a settled run is one whose
+ * states have repeated for long enough that further steps are very unlikely
+ * to produce anything new, rather than one proven to repeat forever.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public class StateHistory {
+    // The number of recent steps remembered.
+    private static final int DEFAULT_WINDOW = 1024;
+    // The fewest consecutive repeating steps accepted as settled; two whole days.
+    private static final int MIN_REPEATS = 48;
+
+    // The hash recorded at each remembered step, by step modulo the window.
+    private final long[] hashes;
+    // The most recent step at which each remembered hash was seen.
+    private final Map<Long, Integer> lastSeen = new HashMap<>();
+    // The period of the current repetition, or zero if the last state was new.
+    private int period;
+    // For how many consecutive steps states have repeated with that period.
+    private int repeats;
+
+    /**
+     * Create a history of the default length.
+     */
+    public StateHistory() {
+        this(DEFAULT_WINDOW);
+    }
+
+    /**
+     * Create a history remembering the given number of steps, which
+     * bounds the longest period that can be detected.
+     *
+     * @param window The number of steps to remember.
+     */
+    public StateHistory(int window) {
+        hashes = new long[window];
+    }
+
+    /**
+     * Record the state hash of a step. Steps must be recorded in order.
+     *
+     * @param step The step.
+     * @param hash The hash of the state after that step.
+     */
+    public void record(int step, long hash) {
+        int slot = step % hashes.length;
+        int evicted = step - hashes.length;
+        if (evicted >= 0) {
+            Integer seen = lastSeen.get(hashes[slot]);
+            if (seen != null && seen == evicted) {
+                lastSeen.remove(hashes[slot]);
+            }
+        }
+        Integer previous = lastSeen.put(hash, step);
+        if (previous == null) {
+            period = 0;
+            repeats = 0;
+        } else if (step - previous == period) {
+            repeats++;
+        } else {
+            period = step - previous;
+            repeats = 1;
+        }
+        hashes[slot] = hash;
+    }
+
+    /**
+     * Check whether the run has settled into a fixed or periodic state.
+     *
+     * @return true if the states have repeated with the same period for
+     * at least two whole periods and two simulated days.
+     */
+    public boolean isSettled() {
+        return period > 0 && repeats >= Math.max(2 * period, MIN_REPEATS);
+    }
+
+    /**
+     * @return The period with which states are repeating, or zero if they are not.
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * Forget every recorded step.
+     */
+    public void clear() {
+        lastSeen.clear();
+        period = 0;
+        repeats = 0;
+    }
+}
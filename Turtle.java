@@ -43,10 +43,9 @@ public class Turtle extends Prey {
      */
     @Override
     public void act(Field currentField, Field nextFieldState, int currentTime, boolean isSunny) {
-        incrementAge();
         incrementHunger();
         if (isAlive()) {
-            if (!validTime(currentTime)) { // does not have any activity at night
+            if (isDormant(currentTime, isSunny)) { // does not have any activity at night
                 nextFieldState.placeAnimal(this, this.getLocation()); // stays in same location
                 return; // nothing else happens - does not move, breed, eat/
             }
@@ -69,11 +68,29 @@ public class Turtle extends Prey {
                 nextFieldState.placeAnimal(this, nextLocation);
             } else {
                 // Overcrowding.
-                setDead();
+                setDead(DeathCause.OVERCROWDING);
             }
         }
     }
 
+    /**
+     * @return true if the turtle has caught the disease.
+     */
+    @Override
+    public boolean isDiseased() {
+        return diseasePop && hasDisease;
+    }
+
+    /**
+     * Set whether the turtle carries the disease, as when a saved world is
+     * loaded. The life expectancy is restored separately.
+     *
+     * @param diseased true if the turtle has the disease.
+     */
+    void restoreDisease(boolean diseased) {
+        hasDisease = diseased;
+    }
+
     /**
      * if the animal catches disease then can only move 5 steps more than
      */
@@ -81,19 +98,63 @@ public class Turtle extends Prey {
         if (diseasePop && !hasDisease) {
             hasDisease = true;
             // life expectancy is the current age and 5 more steps
-            lifeExpectancy = age + 5;
+            setLifeExpectancy(getAge() + 5);
+            recordInfection();
+        }
+    }
+
+    /**
+     * When turtles mate, the male has a 50% chance of getting the disease
+     * if the female has it and vice versa.
+     *
+     * @param mate The male this turtle mated with.
+     * @param draw A random number between 0 and 1 for the mating.
+     */
+    @Override
+    protected void mateWith(Consumer mate, double draw) {
+        if (mate instanceof Turtle matingTurtle && (hasDisease || matingTurtle.hasDisease) && draw < 0.5) {
+            catchDisease();
+            matingTurtle.catchDisease();
         }
     }
 
+    /**
+     * Turn a dead Turtle into a newborn, as created by the constructor.
+     *
+     * @param location The location within the field.
+     */
+    @Override
+    protected void reborn(Location location) {
+        reset(location, 50);
+        hasDisease = rand.nextDouble() < 0.1; // 10% of having a disease
+        lifeExpectancy = (diseasePop && hasDisease) ? age + 5 : MAX_AGE;
+    }
+
     @Override
     public String toString() {
         return "Turtle{" +
-                "age=" + age +
+                "age=" + getAge() +
                 ", alive=" + isAlive() +
                 ", location=" + getLocation() +
                 '}';
     }
 
+    /**
+     * Create a newborn Turtle, reusing a dead one if there is one free.
+     *
+     * @param nextFieldState The updated field.
+     * @param location       The newborn's location.
+     * @return The newborn.
+     */
+    @Override
+    protected Turtle newborn(Field nextFieldState, Location location) {
+        Turtle young = nextFieldState.getLifecycle().reuse(Turtle.class, location);
+        if (young == null) {
+            young = new Turtle(false, location);
+        }
+        return young;
+    }
+
     /**
      * Check whether this Turtle is to give birth at this step.
      * New births will be made into free adjacent locations.
@@ -112,10 +173,8 @@ public class Turtle extends Prey {
             for (Location adjacentLocation : adjacentLocations) {
                 if (nextFieldState.getAnimalAt(adjacentLocation) instanceof Turtle matingTurtle) {
                     if (matingTurtle.isMale) {
-                        // if they mate: the male has a 50% chance of getting the disease if the female has it and vice versa
-                        if ((this.hasDisease || matingTurtle.hasDisease) && rand.nextDouble() < 0.5) {
-                            this.catchDisease();
-                            matingTurtle.catchDisease();
+                        if (this.hasDisease || matingTurtle.hasDisease) {
+                            mateWith(matingTurtle, rand.nextDouble());
                         }
                         maleCount++;
                     }
@@ -125,8 +184,7 @@ public class Turtle extends Prey {
             // based on number of males in vicinity or max number of births
             for (int b = 0; b < maleCount && b < MAX_LITTER_SIZE && !freeLocations.isEmpty(); b++) {
                 Location loc = freeLocations.remove(0);
-                Turtle young = new Turtle(false, loc);
-                nextFieldState.placeAnimal(young, loc);
+                nextFieldState.placeAnimal(newborn(nextFieldState, loc), loc);
             }
         }
     }
@@ -0,0 +1,13 @@
+/**
+ * How the animals of a simulation are moved on from one step to the next.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public enum UpdateMode {
+    // One animal after another, each seeing the moves of those before it.
+    SEQUENTIAL,
+    // All animals decide against the current field, in parallel, and
+    // conflicting claims are settled by priority before the moves are made.
+    INTENT_COMMIT
+}
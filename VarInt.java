@@ -0,0 +1,49 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Reads and writes non-negative integers in a variable number of bytes,
+ * seven bits per byte, so that small numbers take a single byte.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public class VarInt {
+    /**
+     * Write a non-negative number.
+     *
+     * @param out   Where to write.
+     * @param value The number, which must not be negative.
+     * @throws IOException If the number cannot be written.
+     */
+    public static void write(DataOutput out, int value) throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException("negative value: " + value);
+        }
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Read a number written by write.
+     *
+     * @param in Where to read from.
+     * @return The number.
+     * @throws IOException If the number cannot be read.
+     */
+    public static int read(DataInput in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
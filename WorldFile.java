@@ -0,0 +1,240 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A world saved to a file: the size of the field, the step, time of day and
+ * weather, the seed of the random generator, and every plant and animal with
+ * the state it needs to carry on. A simulation created from the file starts
+ * where the saved one stood, without populating a field at random, so large
+ * worlds can be set up quickly and the same world used again and again.
+ * <p>
+ * After a header, the plants are written in the order of their positions and
+ * the animals in the order they act, since that order shapes the run. Each
+ * position is written as the gap from the one before it, the gaps between
+ * animals zigzag encoded as they may go backwards.
+ *
+ * @author Krish Shah
+ * @version 1.0
+ */
+public class WorldFile {
+    // Marks the start of a world file.
+    static final int MAGIC = 0x50505746; // "PPWF"
+    // The version of the file format.
+    static final int VERSION = 1;
+    // The flags of a saved animal.
+    private static final int MALE = 1, DISEASED = 2;
+
+    // The file the world is saved in.
+    private final String fileName;
+    // The dimensions of the field.
+    private final int depth, width;
+    // The step and time of day the world was saved at.
+    private final int step, time;
+    // The weather when the world was saved.
+    private final boolean sunny;
+    // The seed the random generator carries on from.
+    private final long seed;
+
+    /**
+     * Open a saved world, reading its header.
+     *
+     * @param fileName The file the world is saved in.
+     * @throws IOException If the file cannot be read or is not a world file.
+     */
+    public WorldFile(String fileName) throws IOException {
+        this.fileName = fileName;
+        try (DataInputStream in = open()) {
+            depth = in.readInt();
+            width = in.readInt();
+            step = in.readInt();
+            time = in.readInt();
+            sunny = in.readBoolean();
+            seed = in.readLong();
+        }
+    }
+
+    /**
+     * Save the current state of a simulation. The random generator of the
+     * calling thread is seeded afresh from itself, so that the saved run and
+     * any run loaded from the file carry on with the same numbers.
+     *
+     * @param fileName  The file to write.
+     * @param simulator The simulation to save.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(String fileName, Simulator simulator) throws IOException {
+        Field field = simulator.getField();
+        int depth = field.getDepth();
+        int width = field.getWidth();
+        long seed = Randomizer.getRandom().nextLong();
+        Randomizer.setSeed(seed);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(depth);
+            out.writeInt(width);
+            out.writeInt(simulator.getStep());
+            out.writeInt(simulator.getTime());
+            out.writeBoolean(simulator.isSunny());
+            out.writeLong(seed);
+
+            Plant plants = field.getPlants();
+            VarInt.write(out, plants.getCount());
+            int previous = -1;
+            for (int row = 0; row < depth; row++) {
+                for (int col = 0; col < width; col++) {
+                    if (plants.isPlantAt(row, col)) {
+                        int index = row * width + col;
+                        VarInt.write(out, index - previous);
+                        VarInt.write(out, plants.getHeight(row, col));
+                        previous = index;
+                    }
+                }
+            }
+
+            List<Animal> animals = field.getAnimals();
+            VarInt.write(out, animals.size());
+            previous = -1;
+            for (Animal anAnimal : animals) {
+                int index = indexOf(anAnimal.getLocation(), width);
+                int gap = index - previous;
+                VarInt.write(out, (gap << 1) ^ (gap >> 31));
+                previous = index;
+                out.writeByte(Species.of(anAnimal).code());
+                int flags = (anAnimal.isMale() ? MALE : 0) | (anAnimal.isDiseased() ? DISEASED : 0);
+                out.writeByte(flags);
+                VarInt.write(out, anAnimal.getAge());
+                VarInt.write(out, anAnimal.lifeExpectancy);
+                VarInt.write(out, anAnimal instanceof Consumer consumer ? Math.max(consumer.foodLevel, 0) : 0);
+            }
+        }
+    }
+
+    /**
+     * Place the saved plants and animals in an empty field of the saved size.
+     *
+     * @param field The field to fill.
+     * @throws IOException If the file cannot be read.
+     */
+    public void readInto(Field field) throws IOException {
+        if (field.getDepth() != depth || field.getWidth() != width) {
+            throw new IllegalArgumentException("the field is " + field.getDepth() + " by " + field.getWidth()
+                    + " but the saved world is " + depth + " by " + width);
+        }
+        try (DataInputStream in = open()) {
+            in.skipNBytes(4 * 4 + 1 + 8); // the rest of the header
+            Plant plants = field.getPlants();
+            int count = VarInt.read(in);
+            int index = -1;
+            for (int i = 0; i < count; i++) {
+                index += VarInt.read(in);
+                plants.plant(new Location(index / width, index % width), VarInt.read(in));
+            }
+
+            count = VarInt.read(in);
+            index = -1;
+            for (int i = 0; i < count; i++) {
+                int gap = VarInt.read(in);
+                index += (gap >>> 1) ^ -(gap & 1);
+                Location location = new Location(index / width, index % width);
+                Species species = Species.fromCode(in.readByte());
+                int flags = in.readByte();
+                Animal anAnimal = switch (species) {
+                    case TURTLE -> new Turtle(false, location);
+                    case IGUANA -> new Iguana(false, location);
+                    case MANATEE -> new Manatee(false, location);
+                    case SHARK -> new Shark(false, location);
+                    case ORCA -> new Orca(false, location);
+                    default -> throw new IOException("not an animal: " + species);
+                };
+                anAnimal.isMale = (flags & MALE) != 0;
+                anAnimal.age = VarInt.read(in);
+                anAnimal.lifeExpectancy = VarInt.read(in);
+                int foodLevel = VarInt.read(in);
+                if (anAnimal instanceof Consumer consumer) {
+                    consumer.foodLevel = foodLevel;
+                }
+                if (anAnimal instanceof Turtle turtle) {
+                    turtle.restoreDisease((flags & DISEASED) != 0);
+                }
+                field.placeAnimal(anAnimal, location);
+            }
+        }
+    }
+
+    /**
+     * @return The depth of the saved field.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return The width of the saved field.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return The step the world was saved at.
+     */
+    public int getStep() {
+        return step;
+    }
+
+    /**
+     * @return The time of day the world was saved at.
+     */
+    public int getTime() {
+        return time;
+    }
+
+    /**
+     * @return true if the weather was sunny when the world was saved.
+     */
+    public boolean isSunny() {
+        return sunny;
+    }
+
+    /**
+     * @return The seed the random generator carries on from.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Open the file and check that it is a world file, leaving it after the magic number and version.
+     */
+    private DataInputStream open() throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 16));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(fileName + " is not a world file");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported world file version " + version);
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return in;
+    }
+
+    /**
+     * Return the position of a location counted row by row.
+     */
+    private static int indexOf(Location location, int width) {
+        return location.row() * width + location.col();
+    }
+}
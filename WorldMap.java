@@ -0,0 +1,357 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * A map of a world to start a simulation from, such as one drawn from an
+ * observed distribution: the species at every position, and optionally the
+ * age and sex of each animal, whether each turtle is diseased, and the height
+ * of each plant. Whatever is not given is drawn at random, as when a field is
+ * populated. A turtle's life expectancy follows from its age and disease, as
+ * when it is created.
+ * <p>
+ * After a header the map holds a raster of one species code per position,
+ * row by row, then the optional attributes as arrays of fixed width in the
+ * order of the raster: a short height per plant, an int age per animal, a
+ * byte per animal that is 1 for a male and a byte per animal that is 1 for a
+ * diseased turtle. The file is read through memory
+ * mapped windows, so a large map is not copied through a stream, and the
+ * plants are placed by position without making a Location for them; only
+ * each animal is given one.
+ *
+ * @author Krish Shah
+ * @version 1.1
+ */
+public class WorldMap {
+    // Marks the start of a map file.
+    static final int MAGIC = 0x5050574D; // "PPWM"
+    // The version of the file format.
+    static final int VERSION = 1;
+    // The flags of the attributes a map holds.
+    public static final int HEIGHTS = 1, AGES = 2, SEXES = 4, DISEASES = 8;
+    // The size of the header, in bytes.
+    private static final int HEADER_BYTES = 5 * Integer.BYTES + 2 * Long.BYTES;
+    // For drawing what the map does not give.
+    private static final Random rand = Randomizer.getRandom();
+
+    // The file the map is in.
+    private final Path path;
+    // The dimensions of the field.
+    private final int depth, width;
+    // The attributes the map holds.
+    private final int attributes;
+    // The number of plants and of animals in the raster.
+    private final long plantCount, animalCount;
+
+    /**
+     * Open a map, reading its header.
+     *
+     * @param fileName The file the map is in.
+     * @throws IOException If the file cannot be read or is not a map.
+     */
+    public WorldMap(String fileName) throws IOException {
+        path = Path.of(fileName);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read the whole header
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException(fileName + " is not a world map");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported world map version " + version);
+            }
+            depth = header.getInt();
+            width = header.getInt();
+            attributes = header.getInt();
+            plantCount = header.getLong();
+            animalCount = header.getLong();
+            long expected = HEADER_BYTES + (long) depth * width
+                    + (has(HEIGHTS) ? plantCount * Short.BYTES : 0)
+                    + (has(AGES) ? animalCount * Integer.BYTES : 0)
+                    + (has(SEXES) ? animalCount : 0)
+                    + (has(DISEASES) ? animalCount : 0);
+            if (channel.size() != expected) {
+                throw new IOException(fileName + " should be " + expected + " bytes but is " + channel.size());
+            }
+        }
+    }
+
+    /**
+     * Write the plants and animals of a field as a map. A plant beneath an
+     * animal is not shown on the map, and so is left out.
+     *
+     * @param fileName   The file to write.
+     * @param field      The field to map.
+     * @param attributes The attributes to include: any of HEIGHTS, AGES, SEXES and DISEASES.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(String fileName, Field field, int attributes) throws IOException {
+        int depth = field.getDepth();
+        int width = field.getWidth();
+        Plant plants = field.getPlants();
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(depth);
+            out.writeInt(width);
+            byte[] codes = new byte[depth * width];
+            field.copyCodes(codes);
+            long shownPlants = 0;
+            for (byte code : codes) {
+                if (code == Species.PLANT.code()) {
+                    shownPlants++;
+                }
+            }
+            out.writeInt(attributes);
+            out.writeLong(shownPlants);
+            out.writeLong(field.getAnimals().size());
+            out.write(codes);
+            if ((attributes & HEIGHTS) != 0) {
+                for (int index = 0; index < codes.length; index++) {
+                    if (codes[index] == Species.PLANT.code()) {
+                        out.writeShort(plants.getHeight(index / width, index % width));
+                    }
+                }
+            }
+            if ((attributes & (AGES | SEXES | DISEASES)) != 0) {
+                Animal[] inOrder = animalsInOrder(field, codes.length);
+                if ((attributes & AGES) != 0) {
+                    for (Animal anAnimal : inOrder) {
+                        out.writeInt(anAnimal.getAge());
+                    }
+                }
+                if ((attributes & SEXES) != 0) {
+                    for (Animal anAnimal : inOrder) {
+                        out.writeByte(anAnimal.isMale() ? 1 : 0);
+                    }
+                }
+                if ((attributes & DISEASES) != 0) {
+                    for (Animal anAnimal : inOrder) {
+                        out.writeByte(anAnimal.isDiseased() ? 1 : 0);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Place the mapped plants and animals in an empty field of the map's size.
+     * The animals are placed row by row.
+     *
+     * @param field The field to fill.
+     * @throws IOException If the file cannot be read or does not match its header, or holds
+     *                     a plant height or animal age out of range.
+     */
+    public void readInto(Field field) throws IOException {
+        if (field.getDepth() != depth || field.getWidth() != width) {
+            throw new IllegalArgumentException("the field is " + field.getDepth() + " by " + field.getWidth()
+                    + " but the map is " + depth + " by " + width);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long offset = HEADER_BYTES;
+            Section raster = new Section(channel, offset, (long) depth * width);
+            offset += (long) depth * width;
+            Section heights = has(HEIGHTS) ? new Section(channel, offset, plantCount * Short.BYTES) : null;
+            offset += has(HEIGHTS) ? plantCount * Short.BYTES : 0;
+            Section ages = has(AGES) ? new Section(channel, offset, animalCount * Integer.BYTES) : null;
+            offset += has(AGES) ? animalCount * Integer.BYTES : 0;
+            Section sexes = has(SEXES) ? new Section(channel, offset, animalCount) : null;
+            offset += has(SEXES) ? animalCount : 0;
+            Section diseases = has(DISEASES) ? new Section(channel, offset, animalCount) : null;
+
+            Plant plants = field.getPlants();
+            byte[] row = new byte[width];
+            int speciesCount = Species.values().length;
+            long plantsRead = 0, animalsRead = 0;
+            for (int r = 0; r < depth; r++) {
+                raster.nextBytes(row);
+                for (int c = 0; c < width; c++) {
+                    if (row[c] < 0 || row[c] >= speciesCount) {
+                        throw new IOException("unknown species code " + row[c] + " at " + r + "," + c);
+                    }
+                    Species species = Species.fromCode(row[c]);
+                    if (species == Species.EMPTY) {
+                        continue;
+                    }
+                    if (species == Species.PLANT) {
+                        if (++plantsRead > plantCount) {
+                            throw new IOException("the map holds more plants than its header says");
+                        }
+                        int height = heights != null ? heights.nextShort() : rand.nextInt(Plant.MAX_HEIGHT);
+                        if (height < 0 || height > Plant.MAX_HEIGHT) {
+                            throw new IOException("plant height " + height + " at " + r + "," + c
+                                    + " is outside 0.." + Plant.MAX_HEIGHT);
+                        }
+                        plants.plant(r, c, height);
+                        continue;
+                    }
+                    if (++animalsRead > animalCount) {
+                        throw new IOException("the map holds more animals than its header says");
+                    }
+                    Location location = new Location(r, c);
+                    boolean randomAge = ages == null;
+                    Animal anAnimal = switch (species) {
+                        case TURTLE -> new Turtle(randomAge, location);
+                        case IGUANA -> new Iguana(randomAge, location);
+                        case MANATEE -> new Manatee(randomAge, location);
+                        case SHARK -> new Shark(randomAge, location);
+                        case ORCA -> new Orca(randomAge, location);
+                        default -> throw new IOException("not an animal: " + species);
+                    };
+                    if (ages != null) {
+                        int age = ages.nextInt();
+                        if (age < 0) {
+                            throw new IOException("negative age " + age + " at " + r + "," + c);
+                        }
+                        anAnimal.age = age;
+                    }
+                    if (sexes != null) {
+                        anAnimal.isMale = sexes.nextByte() != 0;
+                    }
+                    boolean diseased = diseases != null && diseases.nextByte() != 0;
+                    if (anAnimal instanceof Turtle turtle) {
+                        if (diseases != null) {
+                            turtle.restoreDisease(diseased);
+                        }
+                        // a diseased turtle has five steps left from the age it is placed at
+                        turtle.lifeExpectancy = turtle.isDiseased() ? turtle.age + 5 : turtle.MAX_AGE;
+                    }
+                    field.placeAnimal(anAnimal, location);
+                }
+            }
+            if (plantsRead != plantCount || animalsRead != animalCount) {
+                throw new IOException("the map holds " + plantsRead + " plants and " + animalsRead
+                        + " animals but its header says " + plantCount + " and " + animalCount);
+            }
+        }
+    }
+
+    /**
+     * @return The depth of the mapped field.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return The width of the mapped field.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return The number of plants on the map.
+     */
+    public long getPlantCount() {
+        return plantCount;
+    }
+
+    /**
+     * @return The number of animals on the map.
+     */
+    public long getAnimalCount() {
+        return animalCount;
+    }
+
+    /**
+     * Check whether the map holds an attribute.
+     *
+     * @param attribute One of HEIGHTS, AGES, SEXES and DISEASES.
+     * @return true if the map gives the attribute rather than leaving it to chance.
+     */
+    public boolean has(int attribute) {
+        return (attributes & attribute) != 0;
+    }
+
+    /**
+     * Return the animals of a field in the order of their positions.
+     */
+    private static Animal[] animalsInOrder(Field field, int positions) {
+        int width = field.getWidth();
+        Animal[] byPosition = new Animal[positions];
+        for (Animal anAnimal : field.getAnimals()) {
+            Location location = anAnimal.getLocation();
+            byPosition[location.row() * width + location.col()] = anAnimal;
+        }
+        Animal[] inOrder = new Animal[field.getAnimals().size()];
+        int count = 0;
+        for (Animal anAnimal : byPosition) {
+            if (anAnimal != null) {
+                inOrder[count++] = anAnimal;
+            }
+        }
+        return inOrder;
+    }
+
+    /**
+     * A part of the file read in order through memory mapped windows, since
+     * one mapping cannot reach past two gigabytes.
+     */
+    private static class Section {
+        // The most bytes mapped at once.
+        private static final long WINDOW_BYTES = 1L << 28;
+
+        private final FileChannel channel;
+        // The position in the file of the next value, and the end of the section.
+        private long position;
+        private final long end;
+        // The window mapped, or null before the first value.
+        private MappedByteBuffer window;
+
+        private Section(FileChannel channel, long start, long length) {
+            this.channel = channel;
+            position = start;
+            end = start + length;
+        }
+
+        private void nextBytes(byte[] into) throws IOException {
+            window(into.length).get(into);
+            position += into.length;
+        }
+
+        private byte nextByte() throws IOException {
+            byte value = window(1).get();
+            position++;
+            return value;
+        }
+
+        private short nextShort() throws IOException {
+            short value = window(Short.BYTES).getShort();
+            position += Short.BYTES;
+            return value;
+        }
+
+        private int nextInt() throws IOException {
+            int value = window(Integer.BYTES).getInt();
+            position += Integer.BYTES;
+            return value;
+        }
+
+        /**
+         * Return the window with at least the given number of bytes left,
+         * mapping the next one from the current position if need be.
+         */
+        private MappedByteBuffer window(int bytes) throws IOException {
+            if (window == null || window.remaining() < bytes) {
+                if (position + bytes > end) {
+                    throw new IOException("the map ends early");
+                }
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, end - position));
+            }
+            return window;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Keys for Zobrist hashing of the state of a field. Each combination of
+ * position and occupant has its own pseudo-random 64-bit key, and the hash
+ * of a state is the exclusive or of the keys of everything in it, so it can
+ * be kept up to date as occupants come and go. The keys are computed rather
+ * than stored, so fields of any size can be hashed.
+ *
+ * @author Krish Shah
+ * @version 1.1
+ */
+public class Zobrist {
+    // The increment of SplitMix64, which spreads consecutive numbers apart before they are mixed.
+    static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    // Mixed into every key, so that keys differ from plain integer hashes.
+    private static final long SEED = 0x2545F4914F6CDD1DL;
+
+    /**
+     * Return the key of an animal at a position, which depends on its species and sex.
+     *
+     * @param index    The position, counted row by row.
+     * @param anAnimal The animal.
+     * @return The animal's key.
+     */
+    public static long animalKey(int index, Animal anAnimal) {
+        return key(index, Species.of(anAnimal).code() * 2 + (anAnimal.isMale() ? 1 : 0));
+    }
+
+    /**
+     * Return the key of a plant at a position.
+     *
+     * @param index The position, counted row by row.
+     * @return The plant's key.
+     */
+    public static long plantKey(int index) {
+        return key(index, Species.PLANT.code() * 2);
+    }
+
+    /**
+     * Return the key of the time of day, which is part of the hash of a
+     * state because the animals behave differently at different times.
+     *
+     * @param time The time of day.
+     * @return The time's key.
+     */
+    public static long timeKey(int time) {
+        return key(-1 - time, 0);
+    }
+
+    /**
+     * Return the key of an occupant code at a position.
+     */
+    private static long key(int index, int code) {
+        return mix(((long) index << 4 | code) * GOLDEN_GAMMA + SEED);
+    }
+
+    /**
+     * Scramble the bits of a number by the finaliser of SplitMix64, so that
+     * numbers differing in a single bit give unrelated results. Also used to
+     * derive seeds and random draws from keys.
+     *
+     * @param z The number.
+     * @return The number mixed.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}